@@ -19,24 +19,35 @@
 
 package org.comixed.library.adaptors;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.codehaus.plexus.util.FileUtils;
 import org.comixed.library.loaders.EntryLoader;
 import org.comixed.library.loaders.EntryLoaderException;
+import org.comixed.library.model.ArchiveType;
 import org.comixed.library.model.Comic;
-import org.comixed.library.model.ComicFileHandler;
-import org.comixed.library.model.ComicFileHandlerException;
+import org.comixed.library.model.Page;
 import org.comixed.library.utils.FileTypeIdentifier;
+import org.comixed.utils.CancellationToken;
 import org.comixed.utils.ComicFileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -93,15 +104,17 @@ public abstract class AbstractArchiveAdaptor implements
     private ApplicationContext context;
 
     @Autowired
-    private ComicFileHandler comicFileHandler;
+    protected ComicInfoEntryAdaptor comicInfoEntryAdaptor;
 
     @Autowired
-    protected ComicInfoEntryAdaptor comicInfoEntryAdaptor;
+    protected ArchiveHandlePool archiveHandlePool;
 
     protected List<EntryLoaderForType> loaders = new ArrayList<>();
     protected Map<String,
                   EntryLoader> entryLoaders = new HashMap<>();
     private String defaultExtension;
+    private boolean memoryMapped = false;
+    private int compressionThreads = Runtime.getRuntime().availableProcessors();
 
     public AbstractArchiveAdaptor(String defaultExtension)
     {
@@ -140,14 +153,99 @@ public abstract class AbstractArchiveAdaptor implements
         }
     }
 
+    /**
+     * Stops the current archive operation if the task running it has been
+     * cancelled. Called between entries, so an archive is never left with a
+     * partly written entry.
+     *
+     * @param filename
+     *            the next entry
+     * @throws InterruptedIOException
+     *             if the task has been cancelled
+     */
+    protected void checkCancelled(String filename) throws InterruptedIOException
+    {
+        if (CancellationToken.isCurrentCancelled())
+        {
+            this.logger.debug("Cancelled before entry: " + filename);
+            throw new InterruptedIOException("Cancelled before entry: " + filename);
+        }
+    }
+
+    /**
+     * Builds the comic for a newly saved archive from the source comic rather
+     * than reading the archive back from disk.
+     *
+     * @param source
+     *            the source comic
+     * @param filename
+     *            the saved filename
+     * @param renamePages
+     *            true if the pages were renamed
+     * @return the saved comic
+     * @throws ArchiveAdaptorException
+     *             if an error occurs
+     */
+    protected Comic createSavedComic(Comic source, String filename, boolean renamePages) throws ArchiveAdaptorException
+    {
+        Comic result = new Comic();
+
+        result.setFilename(filename);
+        result.setArchiveType(this.getArchiveType());
+
+        try
+        {
+            this.comicInfoEntryAdaptor.loadContent(result, "ComicInfo.xml",
+                                                   this.comicInfoEntryAdaptor.saveContent(source));
+        }
+        catch (IOException
+               | EntryLoaderException error)
+        {
+            throw new ArchiveAdaptorException("Error loading new comic", error);
+        }
+
+        for (int index = 0;
+             index < source.getPageCount();
+             index++)
+        {
+            Page page = source.getPage(index);
+            if (page.isMarkedDeleted()) continue;
+
+            String pagename = renamePages ? this.getFilenameForEntry(page.getFilename(), index) : page.getFilename();
+            result.addPage(result.getPageCount(), page.copyAs(pagename));
+        }
+
+        return result;
+    }
+
+    private ArchiveType getArchiveType()
+    {
+        for (ArchiveType type : ArchiveType.values())
+        {
+            if (type.getArchiveAdaptor() == this) return type;
+        }
+        this.logger.warn("No archive type registered for adaptor: " + this.getClass().getSimpleName());
+        return null;
+    }
+
+    /**
+     * Returns the number of threads used to compress entries when saving.
+     *
+     * @return the thread count
+     */
+    public int getCompressionThreads()
+    {
+        return this.compressionThreads;
+    }
+
     protected String getFilenameForEntry(String filename, int index)
     {
         return String.format("page-%03d.%s", index, FileUtils.getExtension(filename));
     }
 
-    protected EntryLoader getLoaderForContent(byte[] content)
+    protected EntryLoader getLoaderForContent(String filename, InputStream input)
     {
-        String type = this.fileTypeIdentifier.typeFor(new ByteArrayInputStream(content));
+        String type = this.fileTypeIdentifier.typeFor(input, filename);
 
         this.logger.debug("Content type: " + type);
 
@@ -159,6 +257,42 @@ public abstract class AbstractArchiveAdaptor implements
         return this.loaders;
     }
 
+    /**
+     * Records where each page of a newly saved comic lives within its archive,
+     * since the pages copied from the source comic only carry their names and
+     * hashes. Adaptors which don't index their entries do nothing.
+     *
+     * @param comic
+     *            the saved comic
+     */
+    protected void indexSavedComic(Comic comic)
+    {}
+
+    /**
+     * Returns if saving the given comic requires the content of its pages.
+     * Adaptors which can copy pages directly from the source archive return
+     * false so that the pages are not loaded beforehand.
+     *
+     * @param source
+     *            the source comic
+     * @return true if the page content is needed
+     */
+    protected boolean isPageContentNeeded(Comic source)
+    {
+        return true;
+    }
+
+    /**
+     * Returns if archives are read through a memory mapping rather than with
+     * buffered file reads.
+     *
+     * @return true if memory-mapped
+     */
+    public boolean isMemoryMapped()
+    {
+        return this.memoryMapped;
+    }
+
     @Override
     public void loadComic(Comic comic) throws ArchiveAdaptorException
     {
@@ -169,23 +303,33 @@ public abstract class AbstractArchiveAdaptor implements
 
     /**
      * Performs the underlying loading of the comic's contents from the archive
-     * file.
+     * file in a single pass.
      *
-     * If the entry name is null, then all content is loaded.
+     * If the entry names are null, then all content is loaded into the comic.
+     * Otherwise only the named entries are read, and the pass stops once all
+     * of them have been found.
      *
      * @param comic
      *            the comic
-     * @param entryName
-     *            the entry name
-     * @return
+     * @param entryNames
+     *            the entry names
+     * @return the content of each named entry, or <code>null</code> when
+     *         loading all content
      * @throws ArchiveAdaptorException
      *             if an error occurs
      */
-    protected abstract byte[] loadComicInternal(Comic comic, String entryName) throws ArchiveAdaptorException;
+    protected abstract Map<String,
+                           byte[]> loadComicInternal(Comic comic,
+                                                     Set<String> entryNames) throws ArchiveAdaptorException;
 
     protected byte[] loadContent(String filename, long size, InputStream input) throws IOException
     {
+        this.checkCancelled(filename);
         this.logger.debug("Loading entry: name=" + filename + " size=" + size);
+        if (size > Integer.MAX_VALUE) throw new IOException("Entry too large to load into memory: " + filename);
+        // some archives do not record the size of an entry
+        if (size < 0) return IOUtils.toByteArray(input);
+
         byte[] content = new byte[(int )size];
 
         IOUtils.readFully(input, content);
@@ -193,26 +337,76 @@ public abstract class AbstractArchiveAdaptor implements
         return content;
     }
 
+    @Override
+    public Map<String,
+               byte[]> loadEntries(Comic comic, Collection<String> entryNames) throws ArchiveAdaptorException
+    {
+        this.logger.debug("Loading entries from archive: filename=" + comic.getFilename() + " count="
+                          + entryNames.size());
+        if (entryNames.isEmpty()) return new HashMap<>();
+
+        return this.loadComicInternal(comic, new HashSet<>(entryNames));
+    }
+
     @Override
     public byte[] loadSingleFile(Comic comic, String entryName) throws ArchiveAdaptorException
     {
         this.logger.debug("Loading single entry from archive: filename=" + comic.getFilename() + " entry=" + entryName);
-        return this.loadComicInternal(comic, entryName);
+        return this.loadComicInternal(comic, Collections.singleton(entryName)).get(entryName);
+    }
+
+    @Override
+    public ByteBuffer loadSingleFileBuffer(Comic comic, String entryName) throws ArchiveAdaptorException
+    {
+        byte[] content = this.loadSingleFile(comic, entryName);
+
+        return (content != null) ? ByteBuffer.wrap(content).asReadOnlyBuffer() : null;
     }
 
-    protected void processContent(Comic comic, String filename, byte[] content)
+    private void moveFile(File source, File destination) throws IOException
+    {
+        try
+        {
+            Files.move(source.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException error)
+        {
+            this.logger.debug("Atomic move not supported, moving normally");
+            Files.move(source.toPath(), destination.toPath());
+        }
+    }
+
+    /**
+     * Identifies the type of an entry from the start of its stream and hands
+     * the stream to the matching {@link EntryLoader}. The entry is never
+     * buffered in full here.
+     *
+     * @param comic
+     *            the comic
+     * @param filename
+     *            the entry name
+     * @param size
+     *            the entry size, or -1 if it is not known
+     * @param input
+     *            the entry stream
+     * @throws IOException
+     *             if an error occurs reading the entry, or the task has been
+     *             cancelled
+     */
+    protected void processContent(Comic comic, String filename, long size, InputStream input) throws IOException
     {
-        EntryLoader loader = this.getLoaderForContent(content);
+        this.checkCancelled(filename);
+        BufferedInputStream content = new BufferedInputStream(input);
+        EntryLoader loader = this.getLoaderForContent(filename, content);
         if (loader != null)
         {
             try
             {
-                loader.loadContent(comic, filename, content);
+                loader.loadContent(comic, filename, size, content);
             }
-            catch (EntryLoaderException e)
+            catch (EntryLoaderException error)
             {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                this.logger.error("Failed to load entry: " + filename, error);
             }
         }
         else
@@ -224,49 +418,66 @@ public abstract class AbstractArchiveAdaptor implements
     @Override
     public Comic saveComic(Comic source, boolean renamePages) throws ArchiveAdaptorException
     {
-        this.logger.debug("Saving comic: " + source.getFilename());
+        return this.saveComic(source, renamePages, CompressionProfile.BALANCED);
+    }
 
-        String tempFilename;
+    @Override
+    public Comic saveComic(Comic source, boolean renamePages, CompressionProfile profile) throws ArchiveAdaptorException
+    {
+        this.logger.debug("Saving comic: " + source.getFilename() + " profile=" + profile);
+
+        // the temporary file lives beside the destination so that it can be
+        // renamed into place rather than copied
+        File directory = new File(source.getFilename()).getAbsoluteFile().getParentFile();
+        File tempFile;
         try
         {
-            tempFilename = File.createTempFile(source.getBaseFilename() + "-temporary", "tmp").getAbsolutePath();
+            tempFile = File.createTempFile(FilenameUtils.getBaseName(source.getFilename()) + "-temporary", ".tmp", directory);
         }
         catch (IOException error)
         {
             throw new ArchiveAdaptorException("unable to write comic", error);
         }
 
-        this.saveComicInternal(source, tempFilename, renamePages);
-
-        String filename = ComicFileUtils.findAvailableFilename(source.getBaseFilename(), 0, this.defaultExtension);
-        File file1 = new File(tempFilename);
-        File file2 = new File(filename);
+        String filename;
         try
         {
-            this.logger.debug("Copying " + tempFilename + " to " + filename + ".");
-            FileUtils.copyFile(file1, file2);
+            if (this.isPageContentNeeded(source))
+            {
+                // read all pages in one pass rather than one archive pass per page
+                source.loadPageContents();
+            }
+            this.saveComicInternal(source, tempFile.getAbsolutePath(), renamePages, profile);
+
+            filename = ComicFileUtils.findAvailableFilename(source.getBaseFilename(), 0, this.defaultExtension);
+            this.logger.debug("Moving " + tempFile + " to " + filename + ".");
+            this.moveFile(tempFile, new File(filename));
         }
         catch (IOException error)
         {
-            throw new ArchiveAdaptorException("Unable to copy file", error);
-        }
-
-        Comic result = new Comic();
-
-        result.setFilename(filename);
-
-        try
-        {
-            this.comicFileHandler.loadComic(result);
+            throw new ArchiveAdaptorException("Unable to move file", error);
         }
-        catch (ComicFileHandlerException error)
+        finally
         {
-            throw new ArchiveAdaptorException("Error loading new comic", error);
+            tempFile.delete();
         }
 
+        Comic result = this.createSavedComic(source, filename, renamePages);
+        this.indexSavedComic(result);
+
         return result;
     }
 
+    public void setCompressionThreads(int compressionThreads)
+    {
+        this.compressionThreads = compressionThreads;
+    }
+
+    public void setMemoryMapped(boolean memoryMapped)
+    {
+        this.memoryMapped = memoryMapped;
+    }
+
     /**
      * Performs the underlying creation of the new comic.
      *
@@ -276,10 +487,15 @@ public abstract class AbstractArchiveAdaptor implements
      *            the new filename
      * @param renamePages
      *            rename pages
+     * @param profile
+     *            the compression profile
      * @throws ArchiveException
      *             if an error occurs
      */
-    abstract void saveComicInternal(Comic source, String filename, boolean renamePages) throws ArchiveAdaptorException;
+    abstract void saveComicInternal(Comic source,
+                                    String filename,
+                                    boolean renamePages,
+                                    CompressionProfile profile) throws ArchiveAdaptorException;
 
     protected File validateFile(Comic comic) throws ArchiveAdaptorException
     {
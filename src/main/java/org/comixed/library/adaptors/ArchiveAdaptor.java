@@ -19,6 +19,10 @@
 
 package org.comixed.library.adaptors;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
 import org.comixed.library.model.Comic;
 
 /**
@@ -40,6 +44,23 @@ public interface ArchiveAdaptor
      */
     void loadComic(Comic comic) throws ArchiveAdaptorException;
 
+    /**
+     * Loads several files from the archive file in a single pass.
+     *
+     * Entries which are not found in the archive are not included in the
+     * result.
+     *
+     * @param comic
+     *            the comic
+     * @param entryNames
+     *            the entry names
+     * @return the content of each entry, keyed by entry name
+     * @throws ArchiveAdaptorException
+     *             if an error occurs
+     */
+    Map<String,
+        byte[]> loadEntries(Comic comic, Collection<String> entryNames) throws ArchiveAdaptorException;
+
     /**
      * Loads a single file from the archive file.
      *
@@ -53,6 +74,22 @@ public interface ArchiveAdaptor
      */
     byte[] loadSingleFile(Comic comic, String entryName) throws ArchiveAdaptorException;
 
+    /**
+     * Loads a single file from the archive file as a read-only buffer.
+     *
+     * When possible the buffer is a view of the archive itself rather than a
+     * copy of the entry.
+     *
+     * @param comic
+     *            the comic
+     * @param entryName
+     *            the entry name
+     * @return the content of the entry, or <code>null</code> if not found
+     * @throws ArchiveAdaptorException
+     *             if an error occurs
+     */
+    ByteBuffer loadSingleFileBuffer(Comic comic, String entryName) throws ArchiveAdaptorException;
+
     /**
      * Saves the comic.
      *
@@ -63,6 +100,9 @@ public interface ArchiveAdaptor
      * If a comic already exists with the filename, it is replaced by the new
      * comic.
      *
+     * Entries are compressed using the {@link CompressionProfile#BALANCED}
+     * profile.
+     *
      * @param comic
      *            the comic
      * @param renamePages
@@ -72,4 +112,20 @@ public interface ArchiveAdaptor
      *             if an error occurs
      */
     Comic saveComic(Comic comic, boolean renamePages) throws ArchiveAdaptorException;
+
+    /**
+     * Saves the comic, compressing its entries according to the given profile.
+     *
+     * @param comic
+     *            the comic
+     * @param renamePages
+     *            true rename pages
+     * @param profile
+     *            the compression profile
+     * @return the new comic
+     * @throws ArchiveAdaptorException
+     *             if an error occurs
+     * @see #saveComic(Comic, boolean)
+     */
+    Comic saveComic(Comic comic, boolean renamePages, CompressionProfile profile) throws ArchiveAdaptorException;
 }
\ No newline at end of file
@@ -0,0 +1,322 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>ArchiveHandlePool</code> keeps a bounded number of archive files open
+ * so that repeated reads from the same comic do not have to reopen and
+ * reparse the archive each time.
+ *
+ * A handle is used by one caller at a time. Closing the borrowed
+ * {@link Handle} returns the archive to the pool, where the least recently
+ * used archives are closed once more than {@link #getMaxOpen()} are idle. An
+ * idle archive whose file has since changed on disk is closed rather than
+ * reused.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "comic.archive-pool",
+                         ignoreUnknownFields = false)
+public class ArchiveHandlePool implements
+                               DisposableBean
+{
+    /**
+     * <code>Opener</code> opens a new archive for a file.
+     *
+     * @param <T>
+     *            the archive type
+     */
+    public interface Opener<T extends Closeable>
+    {
+        T open(File file) throws IOException;
+    }
+
+    /**
+     * <code>Handle</code> gives exclusive use of an open archive until it is
+     * closed.
+     *
+     * @param <T>
+     *            the archive type
+     */
+    public static class Handle<T extends Closeable> implements
+                                                   Closeable
+    {
+        private final ArchiveHandlePool pool;
+        private final String key;
+        private final T archive;
+        private final long lastModified;
+        private final long length;
+        private boolean valid = true;
+        private boolean released = false;
+
+        Handle(ArchiveHandlePool pool, String key, T archive, long lastModified, long length)
+        {
+            this.pool = pool;
+            this.key = key;
+            this.archive = archive;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        /**
+         * Returns the archive to the pool.
+         */
+        @Override
+        public void close()
+        {
+            if (this.released) return;
+
+            this.released = true;
+            this.pool.release(this);
+        }
+
+        /**
+         * Returns the open archive.
+         *
+         * @return the archive
+         */
+        public T get()
+        {
+            return this.archive;
+        }
+
+        /**
+         * Marks the archive as unusable, for example after an error left it in
+         * an unknown state, so that it is closed rather than pooled.
+         */
+        public void invalidate()
+        {
+            this.valid = false;
+        }
+
+        boolean matches(File file)
+        {
+            return file.exists() && (file.lastModified() == this.lastModified) && (file.length() == this.length);
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Map<String,
+                      Handle<?>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private int maxOpen = 16;
+
+    /**
+     * Borrows an open archive for the given file, opening a new one if none is
+     * idle in the pool.
+     *
+     * @param file
+     *            the archive file
+     * @param type
+     *            the archive type
+     * @param opener
+     *            opens the archive when the pool has none
+     * @return the handle, which must be closed when done
+     * @throws IOException
+     *             if the archive could not be opened
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Closeable> Handle<T> borrow(File file, Class<T> type, Opener<T> opener) throws IOException
+    {
+        String key = file.getAbsolutePath();
+        Handle<?> handle;
+
+        synchronized (this.idle)
+        {
+            handle = this.idle.remove(key);
+        }
+
+        if (handle != null)
+        {
+            if (type.isInstance(handle.archive) && handle.matches(file))
+            {
+                this.hits.incrementAndGet();
+                this.logger.debug("Reusing open archive: " + key);
+                handle.released = false;
+                return (Handle<T> )handle;
+            }
+            this.logger.debug("Discarding stale archive: " + key);
+            this.closeQuietly(handle);
+        }
+
+        this.misses.incrementAndGet();
+        this.logger.debug("Opening archive: " + key + " [hits=" + this.hits.get() + " misses=" + this.misses.get()
+                          + "]");
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        return new Handle<>(this, key, opener.open(file), lastModified, length);
+    }
+
+    /**
+     * Closes all idle archives.
+     */
+    public void clear()
+    {
+        List<Handle<?>> closing;
+
+        synchronized (this.idle)
+        {
+            closing = new ArrayList<>(this.idle.values());
+            this.idle.clear();
+        }
+        for (Handle<?> handle : closing)
+        {
+            this.closeQuietly(handle);
+        }
+    }
+
+    private void closeQuietly(Handle<?> handle)
+    {
+        try
+        {
+            handle.archive.close();
+        }
+        catch (IOException error)
+        {
+            this.logger.warn("Failed to close archive: " + handle.key, error);
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+        this.clear();
+    }
+
+    /**
+     * Closes any idle archive for the given file. This should be done before
+     * the file is moved, replaced or deleted.
+     *
+     * @param file
+     *            the archive file
+     */
+    public void evict(File file)
+    {
+        Handle<?> handle;
+
+        synchronized (this.idle)
+        {
+            handle = this.idle.remove(file.getAbsolutePath());
+        }
+        if (handle != null)
+        {
+            this.logger.debug("Evicting archive: " + handle.key);
+            this.closeQuietly(handle);
+        }
+    }
+
+    /**
+     * Returns the number of borrows served by an already open archive.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of archives currently idle in the pool.
+     *
+     * @return the idle count
+     */
+    public int getIdleCount()
+    {
+        synchronized (this.idle)
+        {
+            return this.idle.size();
+        }
+    }
+
+    public int getMaxOpen()
+    {
+        return this.maxOpen;
+    }
+
+    /**
+     * Returns the number of borrows that had to open the archive.
+     *
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return this.misses.get();
+    }
+
+    void release(Handle<?> handle)
+    {
+        if (!handle.valid || (this.maxOpen < 1) || !handle.matches(new File(handle.key)))
+        {
+            this.closeQuietly(handle);
+            return;
+        }
+
+        List<Handle<?>> closing = new ArrayList<>();
+
+        synchronized (this.idle)
+        {
+            Handle<?> previous = this.idle.put(handle.key, handle);
+            if (previous != null)
+            {
+                closing.add(previous);
+            }
+            Iterator<Handle<?>> eldest = this.idle.values().iterator();
+            while (this.idle.size() > this.maxOpen)
+            {
+                closing.add(eldest.next());
+                eldest.remove();
+            }
+        }
+
+        for (Handle<?> closed : closing)
+        {
+            this.logger.debug("Closing least recently used archive: " + closed.key);
+            this.closeQuietly(closed);
+        }
+    }
+
+    public void setMaxOpen(int maxOpen)
+    {
+        this.maxOpen = maxOpen;
+    }
+}
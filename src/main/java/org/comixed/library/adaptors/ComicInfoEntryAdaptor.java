@@ -104,6 +104,19 @@ public class ComicInfoEntryAdaptor implements
         }
     }
 
+    @Override
+    public void loadContent(Comic comic, String filename, long size, InputStream input) throws EntryLoaderException
+    {
+        try
+        {
+            this.loadXmlData(input, comic);
+        }
+        catch (final XMLStreamException error)
+        {
+            throw new EntryLoaderException(error);
+        }
+    }
+
     protected void loadXmlData(InputStream istream, Comic comic) throws XMLStreamException
     {
         final XMLStreamReader xmlInputReader = this.xmlInputFactory.createXMLStreamReader(istream);
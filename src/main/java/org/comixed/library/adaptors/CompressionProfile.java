@@ -0,0 +1,183 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZMethod;
+import org.apache.commons.compress.archivers.sevenz.SevenZMethodConfiguration;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * <code>CompressionProfile</code> defines how the entries of an exported comic
+ * are compressed.
+ *
+ * Each profile picks a compression method and level separately for images
+ * which are already compressed, such as JPEG and PNG, and for all other
+ * content.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public enum CompressionProfile
+{
+ /**
+  * Stores images as-is and compresses other content as quickly as possible.
+  */
+ FASTEST(ZipEntry.STORED, Deflater.NO_COMPRESSION, SevenZMethod.COPY, Deflater.BEST_SPEED, SevenZMethod.DEFLATE),
+ /**
+  * Spends little effort on images and compresses other content normally.
+  */
+ BALANCED(ZipEntry.DEFLATED,
+          Deflater.BEST_SPEED,
+          SevenZMethod.DEFLATE,
+          Deflater.DEFAULT_COMPRESSION,
+          SevenZMethod.DEFLATE),
+ /**
+  * Compresses everything as tightly as possible, for archival copies.
+  */
+ SMALLEST(ZipEntry.DEFLATED,
+          Deflater.BEST_COMPRESSION,
+          SevenZMethod.LZMA2,
+          Deflater.BEST_COMPRESSION,
+          SevenZMethod.LZMA2);
+
+    private static final Set<String> COMPRESSED_IMAGE_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("jpg",
+                                                                                                                          "jpeg",
+                                                                                                                          "png",
+                                                                                                                          "gif",
+                                                                                                                          "webp",
+                                                                                                                          "jp2")));
+
+    /**
+     * Returns the profile with the given name, or {@link #BALANCED} if the name
+     * is not recognized.
+     *
+     * @param name
+     *            the profile name
+     * @return the profile
+     */
+    public static CompressionProfile forName(String name)
+    {
+        for (CompressionProfile profile : CompressionProfile.values())
+        {
+            if (profile.name().equalsIgnoreCase(name)) return profile;
+        }
+        return BALANCED;
+    }
+
+    // the level zlib uses for Deflater.DEFAULT_COMPRESSION
+    private static final int DEFAULT_ZIP_LEVEL = 6;
+
+    private static int getEffectiveZipLevel(int level)
+    {
+        return (level == Deflater.DEFAULT_COMPRESSION) ? DEFAULT_ZIP_LEVEL : level;
+    }
+
+    private final int imageZipMethod;
+    private final int imageZipLevel;
+    private final SevenZMethod imageSevenZipMethod;
+    private final int otherZipLevel;
+    private final SevenZMethod otherSevenZipMethod;
+
+    private CompressionProfile(int imageZipMethod,
+                               int imageZipLevel,
+                               SevenZMethod imageSevenZipMethod,
+                               int otherZipLevel,
+                               SevenZMethod otherSevenZipMethod)
+    {
+        this.imageZipMethod = imageZipMethod;
+        this.imageZipLevel = imageZipLevel;
+        this.imageSevenZipMethod = imageSevenZipMethod;
+        this.otherZipLevel = otherZipLevel;
+        this.otherSevenZipMethod = otherSevenZipMethod;
+    }
+
+    /**
+     * Returns whether an existing ZIP entry can be copied as-is rather than
+     * being compressed again.
+     *
+     * A stored entry can be copied if the profile stores it too. A deflated
+     * entry was compressed at an unknown level, so it's only copied when the
+     * profile asks for no more than {@link #BALANCED} would.
+     *
+     * @param filename
+     *            the entry name
+     * @param method
+     *            the entry's existing compression method
+     * @return true if the entry can be copied
+     */
+    public boolean canCopyZipEntry(String filename, int method)
+    {
+        if (method != this.getZipMethod(filename)) return false;
+        if (method == ZipEntry.STORED) return true;
+        return getEffectiveZipLevel(this.getZipLevel(filename)) <= getEffectiveZipLevel(BALANCED.getZipLevel(filename));
+    }
+
+    /**
+     * Returns the 7z compression methods for the given entry.
+     *
+     * @param filename
+     *            the entry name
+     * @return the methods
+     */
+    public Iterable<SevenZMethodConfiguration> getSevenZipMethods(String filename)
+    {
+        SevenZMethod method = this.isCompressedImage(filename) ? this.imageSevenZipMethod : this.otherSevenZipMethod;
+        int level = this.isCompressedImage(filename) ? this.imageZipLevel : this.otherZipLevel;
+
+        return Collections.singletonList((method == SevenZMethod.DEFLATE) ? new SevenZMethodConfiguration(method, level)
+                                                                          : new SevenZMethodConfiguration(method));
+    }
+
+    /**
+     * Returns the deflate level for the given ZIP entry.
+     *
+     * @param filename
+     *            the entry name
+     * @return the level
+     */
+    public int getZipLevel(String filename)
+    {
+        return this.isCompressedImage(filename) ? this.imageZipLevel : this.otherZipLevel;
+    }
+
+    /**
+     * Returns the compression method for the given ZIP entry.
+     *
+     * @param filename
+     *            the entry name
+     * @return either {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+     */
+    public int getZipMethod(String filename)
+    {
+        return this.isCompressedImage(filename) ? this.imageZipMethod : ZipEntry.DEFLATED;
+    }
+
+    private boolean isCompressedImage(String filename)
+    {
+        return COMPRESSED_IMAGE_EXTENSIONS.contains(FileUtils.getExtension(filename).toLowerCase());
+    }
+}
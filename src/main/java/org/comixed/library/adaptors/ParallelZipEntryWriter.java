@@ -0,0 +1,218 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+/**
+ * <code>ParallelZipEntryWriter</code> compresses ZIP entries on a pool of
+ * threads while writing them to the archive in the order they were added.
+ *
+ * Only a bounded number of compressed entries are held in memory at once;
+ * adding an entry beyond that waits for the oldest one to be written.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+class ParallelZipEntryWriter implements
+                             Closeable
+{
+    private static class CompressedEntry
+    {
+        final ZipArchiveEntry entry;
+        final byte[] data;
+
+        CompressedEntry(ZipArchiveEntry entry, byte[] data)
+        {
+            this.entry = entry;
+            this.data = data;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipArchiveOutputStream output;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final Deque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param output
+     *            the archive
+     * @param threads
+     *            the number of compression threads, where one or fewer
+     *            compresses on the calling thread
+     */
+    ParallelZipEntryWriter(ZipArchiveOutputStream output, int threads)
+    {
+        this.output = output;
+        this.executor = (threads > 1) ? Executors.newFixedThreadPool(threads) : null;
+        this.maxPending = Math.max(1, threads * 2);
+    }
+
+    /**
+     * Queues an entry to be compressed as the profile specifies for its type.
+     *
+     * @param name
+     *            the entry name
+     * @param content
+     *            the entry content
+     * @param profile
+     *            the compression profile
+     * @throws IOException
+     *             if an error occurs writing earlier entries
+     */
+    void addEntry(String name, byte[] content, CompressionProfile profile) throws IOException
+    {
+        int method = profile.getZipMethod(name);
+        int level = profile.getZipLevel(name);
+
+        if (this.executor == null)
+        {
+            this.write(compress(name, content, method, level));
+            return;
+        }
+
+        while (this.pending.size() >= this.maxPending)
+        {
+            this.writeNext();
+        }
+        this.pending.add(CompletableFuture.supplyAsync(() -> compress(name, content, method, level), this.executor));
+    }
+
+    /**
+     * Writes an already compressed entry after all queued entries.
+     *
+     * @param entry
+     *            the entry
+     * @param raw
+     *            the compressed content
+     * @throws IOException
+     *             if an error occurs
+     */
+    void addRawEntry(ZipArchiveEntry entry, InputStream raw) throws IOException
+    {
+        this.flush();
+        this.output.addRawArchiveEntry(entry, raw);
+    }
+
+    @Override
+    public void close()
+    {
+        if (this.executor != null)
+        {
+            this.executor.shutdownNow();
+        }
+    }
+
+    private static CompressedEntry compress(String name, byte[] content, int method, int level)
+    {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        CRC32 crc = new CRC32();
+        byte[] data = content;
+
+        crc.update(content);
+        if (method == ZipEntry.DEFLATED)
+        {
+            Deflater deflater = new Deflater(level, true);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream((content.length / 2) + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            try
+            {
+                deflater.setInput(content);
+                deflater.finish();
+                while (!deflater.finished())
+                {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+            }
+            finally
+            {
+                deflater.end();
+            }
+            data = compressed.toByteArray();
+        }
+
+        entry.setMethod(method);
+        entry.setCrc(crc.getValue());
+        entry.setSize(content.length);
+        entry.setCompressedSize(data.length);
+
+        return new CompressedEntry(entry, data);
+    }
+
+    /**
+     * Writes all queued entries.
+     *
+     * @throws IOException
+     *             if an error occurs
+     */
+    void flush() throws IOException
+    {
+        while (!this.pending.isEmpty())
+        {
+            this.writeNext();
+        }
+    }
+
+    private void write(CompressedEntry compressed) throws IOException
+    {
+        this.output.addRawArchiveEntry(compressed.entry, new ByteArrayInputStream(compressed.data));
+    }
+
+    private void writeNext() throws IOException
+    {
+        try
+        {
+            this.write(this.pending.removeFirst().get());
+        }
+        catch (InterruptedException error)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing entries");
+        }
+        catch (ExecutionException error)
+        {
+            throw new IOException("failed to compress entry", error.getCause());
+        }
+    }
+}
@@ -21,6 +21,10 @@ package org.comixed.library.adaptors;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import org.comixed.library.model.Comic;
 import org.springframework.stereotype.Component;
@@ -46,59 +50,94 @@ public class RarArchiveAdaptor extends AbstractArchiveAdaptor
     }
 
     @Override
-    protected byte[] loadComicInternal(Comic comic, String entryName) throws ArchiveAdaptorException
+    protected Map<String,
+                  byte[]> loadComicInternal(Comic comic, Set<String> entryNames) throws ArchiveAdaptorException
     {
         File file = validateFile(comic);
-        byte[] result = null;
+        Map<String,
+            byte[]> result = (entryNames != null) ? new HashMap<>() : null;
 
-        try
+        try (ArchiveHandlePool.Handle<Archive> handle = this.archiveHandlePool.borrow(file, Archive.class,
+                                                                                      this::openArchive))
         {
-            Archive archive = new Archive(new FileVolumeManager(file));
-            FileHeader entry = archive.nextFileHeader();
+            Archive archive = handle.get();
 
-            if (entry == null)
+            // entries in a solid archive depend on the ones before them, so
+            // the archive cannot be reused to read them out of order
+            if (archive.getMainHeader().isSolid())
             {
-                archive.close();
-                throw new ArchiveAdaptorException("Invalid or corrupt RAR file: " + file.getName());
+                handle.invalidate();
             }
 
-            while (entry != null)
+            try
             {
-                String filename = entry.getFileNameString();
-
-                if (entryName == null || entryName.equals(filename))
+                for (FileHeader entry : archive.getFileHeaders())
                 {
-                    byte[] content = this.loadContent(filename, entry.getFullUnpackSize(),
-                                                      archive.getInputStream(entry));
+                    String filename = entry.getFileNameString();
 
-                    if (entryName != null)
+                    if (entryNames == null || entryNames.contains(filename))
                     {
-                        logger.debug("Returning content for entry");
-                        result = content;
-                        break;
-                    }
-                    else
-                    {
-                        logger.debug("Processing entry content");
-                        processContent(comic, filename, content);
+                        InputStream content = new RarEntryInputStream(archive, entry);
+                        try
+                        {
+                            if (entryNames != null)
+                            {
+                                logger.debug("Returning content for entry");
+                                result.put(filename, this.loadContent(filename, entry.getFullUnpackSize(), content));
+                            }
+                            else
+                            {
+                                logger.debug("Processing entry content");
+                                processContent(comic, filename, entry.getFullUnpackSize(), content);
+                            }
+                        }
+                        finally
+                        {
+                            content.close();
+                        }
+                        // if we have all the requested files, then we're done
+                        if ((entryNames != null) && (result.size() == entryNames.size())) break;
                     }
                 }
-
-                entry = archive.nextFileHeader();
             }
-
-            archive.close();
+            catch (IOException error)
+            {
+                handle.invalidate();
+                throw error;
+            }
         }
-        catch (RarException
-               | IOException error)
+        catch (IOException error)
         {
             throw new ArchiveAdaptorException("unable to open file: " + file.getAbsolutePath(), error);
         }
         return result;
     }
 
+    private Archive openArchive(File file) throws IOException
+    {
+        try
+        {
+            Archive result = new Archive(new FileVolumeManager(file));
+
+            if (result.getFileHeaders().isEmpty())
+            {
+                result.close();
+                throw new IOException("Invalid or corrupt RAR file: " + file.getName());
+            }
+
+            return result;
+        }
+        catch (RarException error)
+        {
+            throw new IOException("Unable to open RAR file: " + file.getName(), error);
+        }
+    }
+
     @Override
-    void saveComicInternal(Comic source, String filename, boolean renamePages) throws ArchiveAdaptorException
+    void saveComicInternal(Comic source,
+                           String filename,
+                           boolean renamePages,
+                           CompressionProfile profile) throws ArchiveAdaptorException
     {
         logger.warn("Saving RAR comics is not supported");
         throw new ArchiveAdaptorException("Saving CBR comics is not supported");
@@ -0,0 +1,111 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import com.github.junrar.Archive;
+import com.github.junrar.exception.RarException;
+import com.github.junrar.rarfile.FileHeader;
+
+/**
+ * <code>RarEntryInputStream</code> streams a single RAR entry as it is
+ * extracted on a background thread.
+ *
+ * Unlike {@link Archive#getInputStream(FileHeader)}, closing the stream waits
+ * for the extraction to stop, so the archive can safely be reused afterwards.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+class RarEntryInputStream extends PipedInputStream
+{
+    private static final int PIPE_SIZE = 32 * 1024;
+
+    private final Thread extractor;
+    private volatile RarException error;
+
+    RarEntryInputStream(Archive archive, FileHeader entry) throws IOException
+    {
+        super(PIPE_SIZE);
+        PipedOutputStream output = new PipedOutputStream(this);
+        this.extractor = new Thread(() ->
+        {
+            try
+            {
+                archive.extractFile(entry, output);
+            }
+            catch (RarException cause)
+            {
+                this.error = cause;
+            }
+            finally
+            {
+                try
+                {
+                    output.close();
+                }
+                catch (IOException cause)
+                {
+                    // the reader has already gone away
+                }
+            }
+        }, "rar-extract-" + entry.getFileNameString());
+        this.extractor.setDaemon(true);
+        this.extractor.start();
+    }
+
+    private int checkForError(int result) throws IOException
+    {
+        if ((result == -1) && (this.error != null)) throw new IOException("failed to extract entry", this.error);
+
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        super.close();
+        try
+        {
+            this.extractor.join();
+        }
+        catch (InterruptedException cause)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while stopping extraction");
+        }
+    }
+
+    @Override
+    public synchronized int read() throws IOException
+    {
+        return this.checkForError(super.read());
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int offset, int length) throws IOException
+    {
+        return this.checkForError(super.read(buffer, offset, length));
+    }
+}
@@ -19,13 +19,16 @@
 
 package org.comixed.library.adaptors;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
-import org.apache.commons.compress.archivers.sevenz.SevenZFile;
-import org.apache.commons.compress.archivers.sevenz.SevenZMethod;
 import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
 import org.comixed.library.model.Comic;
 import org.comixed.library.model.Page;
@@ -48,44 +51,62 @@ public class SevenZipArchiveAdaptor extends AbstractArchiveAdaptor
     }
 
     @Override
-    protected byte[] loadComicInternal(Comic comic, String entryName) throws ArchiveAdaptorException
+    protected Map<String,
+                  byte[]> loadComicInternal(Comic comic, Set<String> entryNames) throws ArchiveAdaptorException
     {
         File file = validateFile(comic);
 
-        try
+        try (ArchiveHandlePool.Handle<SevenZipArchiveReader> handle = this.archiveHandlePool.borrow(file,
+                                                                                                     SevenZipArchiveReader.class,
+                                                                                                     source -> new SevenZipArchiveReader(source,
+                                                                                                                                         this.isMemoryMapped())))
         {
-            SevenZFile comicFile = new SevenZFile(file);
-            byte[] result = null;
-            SevenZArchiveEntry entry = comicFile.getNextEntry();
-
-            while (entry != null)
+            try
             {
-                String filename = entry.getName();
-                if (entryName == null || entryName.equals(filename))
+                SevenZipArchiveReader reader = handle.get();
+                Map<String,
+                    byte[]> result = (entryNames != null) ? new HashMap<>() : null;
+
+                if ((entryNames == null) || !reader.canReadForward(entryNames))
                 {
-                    byte[] content = new byte[(int )entry.getSize()];
+                    logger.debug("Reading archive from the start");
+                    reader.rewind();
+                }
 
-                    comicFile.read(content, 0, (int )entry.getSize());
-                    // if we were looking for a file, then we're done
-                    if (entryName != null)
-                    {
-                        logger.debug("Return content for entry");
-                        result = content;
-                        break;
-                    }
-                    else
+                SevenZArchiveEntry entry = reader.getNextEntry();
+
+                while (entry != null)
+                {
+                    String filename = entry.getName();
+                    if (entryNames == null || entryNames.contains(filename))
                     {
-                        logger.debug("Processing entry content");
-                        processContent(comic, filename, content);
+                        long size = entry.hasStream() ? entry.getSize() : 0L;
+                        InputStream content = entry.hasStream() ? new SevenZipEntryInputStream(reader.getArchive())
+                                                                : new ByteArrayInputStream(new byte[0]);
+                        if (entryNames != null)
+                        {
+                            logger.debug("Return content for entry");
+                            result.put(filename, this.loadContent(filename, size, content));
+                            // if we have all the requested files, then we're done
+                            if (result.size() == entryNames.size()) break;
+                        }
+                        else
+                        {
+                            logger.debug("Processing entry content");
+                            processContent(comic, filename, size, content);
+                        }
                     }
+
+                    entry = reader.getNextEntry();
                 }
 
-                entry = comicFile.getNextEntry();
+                return result;
+            }
+            catch (IOException error)
+            {
+                handle.invalidate();
+                throw error;
             }
-
-            comicFile.close();
-
-            return result;
         }
         catch (IOException error)
         {
@@ -94,18 +115,18 @@ public class SevenZipArchiveAdaptor extends AbstractArchiveAdaptor
     }
 
     @Override
-    void saveComicInternal(Comic source, String filename, boolean renamePages) throws ArchiveAdaptorException
+    void saveComicInternal(Comic source,
+                           String filename,
+                           boolean renamePages,
+                           CompressionProfile profile) throws ArchiveAdaptorException
     {
-        logger.debug("Creating temporary file: " + filename);
+        logger.debug("Creating archive: " + filename);
 
-        try
+        try (SevenZOutputFile sevenzcomic = new SevenZOutputFile(new File(filename)))
         {
-            SevenZOutputFile sevenzcomic = new SevenZOutputFile(new File(filename));
-            sevenzcomic.setContentCompression(SevenZMethod.LZMA2);
-
             logger.debug("Adding the ComicInfo.xml entry");
 
-            addFileToArchive(sevenzcomic, "ComicInfo.xml", comicInfoEntryAdaptor.saveContent(source));
+            addFileToArchive(sevenzcomic, "ComicInfo.xml", comicInfoEntryAdaptor.saveContent(source), profile);
 
             for (int index = 0;
                  index < source.getPageCount();
@@ -118,12 +139,12 @@ public class SevenZipArchiveAdaptor extends AbstractArchiveAdaptor
                     continue;
                 }
                 String pagename = renamePages ? getFilenameForEntry(page.getFilename(), index) : page.getFilename();
+                this.checkCancelled(pagename);
                 logger.debug("Adding entry: " + pagename + " size=" + page.getContent().length);
-                addFileToArchive(sevenzcomic, pagename, page.getContent());
+                addFileToArchive(sevenzcomic, pagename, page.getContent(), profile);
             }
 
             sevenzcomic.finish();
-            sevenzcomic.close();
         }
         catch (IOException error)
         {
@@ -131,23 +152,21 @@ public class SevenZipArchiveAdaptor extends AbstractArchiveAdaptor
         }
     }
 
-    private void addFileToArchive(SevenZOutputFile archive, String filename, byte[] content) throws IOException
+    private void addFileToArchive(SevenZOutputFile archive,
+                                  String filename,
+                                  byte[] content,
+                                  CompressionProfile profile) throws IOException
     {
         logger.info("Saving file to archive: " + filename + " [size=" + content.length + "]");
 
-        File tempFile = File.createTempFile("comixed", "tmp");
-        logger.debug("Saving entry as temporary filename: " + tempFile.getAbsolutePath());
-        FileOutputStream output = new FileOutputStream(tempFile);
-        output.write(content, 0, content.length);
-        output.close();
-
-        logger.debug("Adding temporary file to archive");
-        SevenZArchiveEntry entry = archive.createArchiveEntry(tempFile, filename);
+        // build the entry directly rather than from a file on disk
+        SevenZArchiveEntry entry = new SevenZArchiveEntry();
+        entry.setName(filename);
+        entry.setDirectory(false);
+        entry.setLastModifiedDate(new Date());
+        entry.setContentMethods(profile.getSevenZipMethods(filename));
         archive.putArchiveEntry(entry);
         archive.write(content);
         archive.closeArchiveEntry();
-
-        logger.debug("Cleaning up the temporary file");
-        tempFile.delete();
     }
 }
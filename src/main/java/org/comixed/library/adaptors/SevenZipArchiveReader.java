@@ -0,0 +1,128 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+import org.comixed.library.utils.MappedSeekableByteChannel;
+
+/**
+ * <code>SevenZipArchiveReader</code> wraps a {@link SevenZFile} and remembers
+ * how far through the archive it has read. Since a 7z archive can only be
+ * read forwards, a pooled reader can serve any request for entries after its
+ * current position without decompressing the archive from the start again.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+class SevenZipArchiveReader implements
+                            Closeable
+{
+    private final File file;
+    private final MappedSeekableByteChannel mapping;
+    private SevenZFile archive;
+    private final Map<String,
+                      Integer> positions = new HashMap<>();
+    private int position = 0;
+
+    SevenZipArchiveReader(File file, boolean memoryMapped) throws IOException
+    {
+        this.file = file;
+        this.mapping = (memoryMapped && MappedSeekableByteChannel.canMap(file)) ? new MappedSeekableByteChannel(file)
+                                                                                : null;
+        this.archive = this.open();
+
+        int index = 0;
+        for (SevenZArchiveEntry entry : this.archive.getEntries())
+        {
+            this.positions.putIfAbsent(entry.getName(), index++);
+        }
+    }
+
+    /**
+     * Returns if all of the named entries still lie ahead of the reader.
+     *
+     * @param entryNames
+     *            the entry names
+     * @return true if the reader does not need to start over
+     */
+    boolean canReadForward(Iterable<String> entryNames)
+    {
+        for (String entryName : entryNames)
+        {
+            Integer index = this.positions.get(entryName);
+            if ((index != null) && (index < this.position)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.archive.close();
+        if (this.mapping != null)
+        {
+            this.mapping.close();
+        }
+    }
+
+    SevenZFile getArchive()
+    {
+        return this.archive;
+    }
+
+    private SevenZFile open() throws IOException
+    {
+        // each archive gets its own view of the mapping since closing the
+        // archive also closes its channel
+        return (this.mapping != null) ? new SevenZFile(this.mapping.duplicate()) : new SevenZFile(this.file);
+    }
+
+    SevenZArchiveEntry getNextEntry() throws IOException
+    {
+        SevenZArchiveEntry result = this.archive.getNextEntry();
+        if (result != null)
+        {
+            this.position++;
+        }
+        return result;
+    }
+
+    /**
+     * Reopens the archive so that reading starts from the first entry.
+     *
+     * @throws IOException
+     *             if an error occurs
+     */
+    void rewind() throws IOException
+    {
+        if (this.position == 0) return;
+
+        this.archive.close();
+        this.archive = this.open();
+        this.position = 0;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZFile;
+
+/**
+ * <code>SevenZipEntryInputStream</code> exposes the current entry of a
+ * {@link SevenZFile} as an {@link InputStream}. Closing the stream does not
+ * close the archive.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+class SevenZipEntryInputStream extends InputStream
+{
+    private final SevenZFile archive;
+
+    SevenZipEntryInputStream(SevenZFile archive)
+    {
+        super();
+        this.archive = archive;
+    }
+
+    @Override
+    public void close()
+    {
+        // the archive is owned by the caller
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        return this.archive.read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException
+    {
+        return this.archive.read(buffer, offset, length);
+    }
+}
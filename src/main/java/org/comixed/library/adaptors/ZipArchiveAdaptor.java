@@ -20,15 +20,26 @@
 package org.comixed.library.adaptors;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
 
-import org.apache.commons.compress.archivers.ArchiveException;
-import org.apache.commons.compress.archivers.ArchiveStreamFactory;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.comixed.library.model.ArchiveEntryIndex;
+import org.comixed.library.model.ArchiveType;
 import org.comixed.library.model.Comic;
 import org.comixed.library.model.Page;
 import org.springframework.stereotype.Component;
@@ -48,39 +59,285 @@ public class ZipArchiveAdaptor extends AbstractArchiveAdaptor
         super("cbz");
     }
 
-    protected byte[] loadComicInternal(Comic comic, String entryName) throws ArchiveAdaptorException
+    private ArchiveHandlePool.Handle<ZipArchiveReader> borrowReader(File file) throws IOException
     {
-        File file = validateFile(comic);
+        return this.archiveHandlePool.borrow(file, ZipArchiveReader.class,
+                                             source -> new ZipArchiveReader(source, this.isMemoryMapped()));
+    }
 
-        try
+    /**
+     * Returns the entry index for the page with the given filename.
+     *
+     * @param comic
+     *            the comic
+     * @param entryName
+     *            the entry name
+     * @return the index, or <code>null</code> if the page has none
+     */
+    private ArchiveEntryIndex findEntryIndex(Comic comic, String entryName)
+    {
+        for (int index = 0;
+             index < comic.getPageCount();
+             index++)
         {
-            ZipFile input = new ZipFile(file);
-            byte[] result = null;
-            Enumeration<ZipArchiveEntry> entries = input.getEntries();
+            Page page = comic.getPage(index);
+            if (entryName.equals(page.getFilename()))
+            {
+                ArchiveEntryIndex result = page.getEntryIndex();
+                return (result != null) && result.isComplete() ? result : null;
+            }
+        }
+        return null;
+    }
 
-            while (entries.hasMoreElements())
+    /**
+     * Reads a single entry by seeking directly to its data using the persisted
+     * entry index.
+     *
+     * Returns <code>null</code> if the index does not match the archive, in
+     * which case the caller should fall back to scanning the archive.
+     *
+     * @param file
+     *            the archive file
+     * @param entryIndex
+     *            the entry index
+     * @return the entry content, or <code>null</code>
+     * @throws IOException
+     *             if an error occurs
+     */
+    private byte[] loadIndexedEntry(File file, ArchiveEntryIndex entryIndex) throws IOException
+    {
+        if ((entryIndex.getSize() > Integer.MAX_VALUE) || (entryIndex.getCompressedSize() > Integer.MAX_VALUE))
+        {
+            logger.debug("Indexed entry is too large to load directly");
+            return null;
+        }
+
+        byte[] compressed;
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try
+        {
+            if ((entryIndex.getDataOffset() + entryIndex.getCompressedSize()) > input.length())
             {
-                ZipArchiveEntry entry = entries.nextElement();
-                String filename = entry.getName();
-                if (entryName == null || entryName.equals(filename))
+                logger.debug("Indexed entry lies outside of the archive");
+                return null;
+            }
+            // the extra byte is required by the inflater when reading raw
+            // deflate data
+            compressed = new byte[(int )entryIndex.getCompressedSize() + 1];
+            input.seek(entryIndex.getDataOffset());
+            input.readFully(compressed, 0, (int )entryIndex.getCompressedSize());
+        }
+        finally
+        {
+            input.close();
+        }
+
+        byte[] result = new byte[(int )entryIndex.getSize()];
+
+        switch (entryIndex.getMethod())
+        {
+            case ZipEntry.STORED:
+                if (entryIndex.getCompressedSize() != entryIndex.getSize()) return null;
+                System.arraycopy(compressed, 0, result, 0, result.length);
+                break;
+            case ZipEntry.DEFLATED:
+                Inflater inflater = new Inflater(true);
+                try
                 {
-                    byte[] content = this.loadContent(entry.getName(), entry.getSize(), input.getInputStream(entry));
-                    // if we were looking for a file, then we're done
-                    if (entryName != null)
+                    inflater.setInput(compressed);
+                    int count = 0;
+                    while ((count < result.length) && !inflater.finished())
                     {
-                        logger.debug("Return content for entry");
-                        result = content;
-                        break;
+                        int read = inflater.inflate(result, count, result.length - count);
+                        if ((read == 0) && (inflater.needsInput() || inflater.needsDictionary())) break;
+                        count += read;
                     }
-                    else
+                    if (count != result.length) return null;
+                }
+                catch (DataFormatException error)
+                {
+                    logger.debug("Indexed entry is not valid deflate data", error);
+                    return null;
+                }
+                finally
+                {
+                    inflater.end();
+                }
+                break;
+            default:
+                logger.debug("Unsupported method for direct read: " + entryIndex.getMethod());
+                return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(result);
+        if (crc.getValue() != entryIndex.getCrc())
+        {
+            logger.debug("Indexed entry failed CRC check");
+            return null;
+        }
+
+        return result;
+    }
+
+    @Override
+    public byte[] loadSingleFile(Comic comic, String entryName) throws ArchiveAdaptorException
+    {
+        ArchiveEntryIndex entryIndex = this.findEntryIndex(comic, entryName);
+
+        if (entryIndex != null)
+        {
+            File file = validateFile(comic);
+
+            logger.debug("Loading indexed entry from archive: filename=" + comic.getFilename() + " entry="
+                         + entryName);
+            try
+            {
+                byte[] result = this.loadIndexedEntry(file, entryIndex);
+                if (result != null) return result;
+            }
+            catch (IOException error)
+            {
+                throw new ArchiveAdaptorException("unable to read file: " + file.getAbsolutePath(), error);
+            }
+            logger.debug("Entry index is stale, scanning archive instead");
+        }
+
+        return super.loadSingleFile(comic, entryName);
+    }
+
+    /**
+     * When memory-mapped, entries stored without compression are returned as a
+     * slice of the mapping rather than being copied.
+     */
+    @Override
+    public ByteBuffer loadSingleFileBuffer(Comic comic, String entryName) throws ArchiveAdaptorException
+    {
+        if (this.isMemoryMapped())
+        {
+            File file = validateFile(comic);
+
+            try (ArchiveHandlePool.Handle<ZipArchiveReader> handle = this.borrowReader(file))
+            {
+                ZipArchiveReader reader = handle.get();
+                ZipArchiveEntry entry = reader.getZipFile().getEntry(entryName);
+
+                if (entry == null) return null;
+                if ((reader.getMapping() != null) && (entry.getMethod() == ZipEntry.STORED)
+                    && (entry.getSize() == entry.getCompressedSize()) && (entry.getSize() <= Integer.MAX_VALUE))
+                {
+                    logger.debug("Returning mapped entry: " + entryName);
+                    return reader.getMapping().slice(entry.getDataOffset(), (int )entry.getSize());
+                }
+            }
+            catch (IOException error)
+            {
+                throw new ArchiveAdaptorException("unable to open file: " + file.getAbsolutePath(), error);
+            }
+        }
+
+        return super.loadSingleFileBuffer(comic, entryName);
+    }
+
+    @Override
+    public Map<String,
+               byte[]> loadEntries(Comic comic, Collection<String> entryNames) throws ArchiveAdaptorException
+    {
+        Map<String,
+            byte[]> result = new HashMap<>();
+        Set<String> remaining = new HashSet<>();
+        File file = validateFile(comic);
+
+        // indexed entries are read directly, the rest share a single scan
+        for (String entryName : entryNames)
+        {
+            ArchiveEntryIndex entryIndex = this.findEntryIndex(comic, entryName);
+            byte[] content = null;
+
+            if (entryIndex != null)
+            {
+                try
+                {
+                    content = this.loadIndexedEntry(file, entryIndex);
+                }
+                catch (IOException error)
+                {
+                    throw new ArchiveAdaptorException("unable to read file: " + file.getAbsolutePath(), error);
+                }
+            }
+            if (content != null)
+            {
+                result.put(entryName, content);
+            }
+            else
+            {
+                remaining.add(entryName);
+            }
+        }
+
+        if (!remaining.isEmpty())
+        {
+            result.putAll(super.loadEntries(comic, remaining));
+        }
+
+        return result;
+    }
+
+    @Override
+    protected Map<String,
+                  byte[]> loadComicInternal(Comic comic, Set<String> entryNames) throws ArchiveAdaptorException
+    {
+        File file = validateFile(comic);
+
+        try (ArchiveHandlePool.Handle<ZipArchiveReader> handle = this.borrowReader(file))
+        {
+            ZipFile input = handle.get().getZipFile();
+            Map<String,
+                byte[]> result = (entryNames != null) ? new HashMap<>() : null;
+            Enumeration<ZipArchiveEntry> entries = input.getEntries();
+
+            try
+            {
+                while (entries.hasMoreElements())
+                {
+                    ZipArchiveEntry entry = entries.nextElement();
+                    String filename = entry.getName();
+                    if (entryNames == null || entryNames.contains(filename))
                     {
-                        logger.debug("Processing entry content");
-                        processContent(comic, filename, content);
+                        InputStream content = input.getInputStream(entry);
+                        try
+                        {
+                            if (entryNames != null)
+                            {
+                                logger.debug("Return content for entry");
+                                result.put(filename, this.loadContent(filename, entry.getSize(), content));
+                            }
+                            else
+                            {
+                                logger.debug("Processing entry content");
+                                processContent(comic, filename, entry.getSize(), content);
+                            }
+                        }
+                        finally
+                        {
+                            content.close();
+                        }
+                        // if we have all the requested files, then we're done
+                        if ((entryNames != null) && (result.size() == entryNames.size())) break;
                     }
                 }
             }
+            catch (IOException error)
+            {
+                handle.invalidate();
+                throw error;
+            }
 
-            input.close();
+            if (entryNames == null)
+            {
+                this.updateEntryIndex(comic, input);
+            }
 
             return result;
         }
@@ -90,26 +347,116 @@ public class ZipArchiveAdaptor extends AbstractArchiveAdaptor
         }
     }
 
+    /**
+     * Records where each page's entry lives within the archive so that later
+     * single page reads can go straight to the entry.
+     *
+     * @param comic
+     *            the comic
+     * @param input
+     *            the open archive
+     */
+    private void updateEntryIndex(Comic comic, ZipFile input)
+    {
+        logger.debug("Building entry index: " + comic.getFilename());
+        for (int index = 0;
+             index < comic.getPageCount();
+             index++)
+        {
+            Page page = comic.getPage(index);
+            ZipArchiveEntry entry = input.getEntry(page.getFilename());
+
+            if (entry != null)
+            {
+                page.setEntryIndex(new ArchiveEntryIndex(entry.getDataOffset(), entry.getCompressedSize(),
+                                                         entry.getSize(), entry.getMethod(), entry.getCrc()));
+            }
+        }
+    }
+
+    @Override
+    protected void indexSavedComic(Comic comic)
+    {
+        try (ArchiveHandlePool.Handle<ZipArchiveReader> handle = this.borrowReader(new File(comic.getFilename())))
+        {
+            this.updateEntryIndex(comic, handle.get().getZipFile());
+        }
+        catch (IOException error)
+        {
+            // the pages are still found by scanning the archive
+            logger.warn("Unable to index saved comic: " + comic.getFilename(), error);
+        }
+    }
+
+    /**
+     * Returns if pages can be copied as raw entries from the source comic,
+     * which is only possible when it is also a ZIP archive.
+     *
+     * @param source
+     *            the source comic
+     * @return true if entries can be copied without recompressing
+     */
+    private boolean canCopyRawEntries(Comic source)
+    {
+        return (source.getArchiveType() == ArchiveType.CBZ) && new File(source.getFilename()).isFile();
+    }
+
+    /**
+     * Creates an entry for writing the compressed data of an existing entry
+     * under a possibly new name.
+     *
+     * @param source
+     *            the existing entry
+     * @param name
+     *            the new name
+     * @return the entry
+     */
+    private ZipArchiveEntry createRawEntry(ZipArchiveEntry source, String name)
+    {
+        ZipArchiveEntry result = new ZipArchiveEntry(name);
+
+        result.setMethod(source.getMethod());
+        result.setCrc(source.getCrc());
+        result.setSize(source.getSize());
+        result.setCompressedSize(source.getCompressedSize());
+        result.setTime(source.getTime());
+
+        return result;
+    }
+
     @Override
-    void saveComicInternal(Comic source, String filename, boolean renamePages) throws ArchiveAdaptorException
+    protected boolean isPageContentNeeded(Comic source)
+    {
+        return !this.canCopyRawEntries(source);
+    }
+
+    @Override
+    void saveComicInternal(Comic source,
+                           String filename,
+                           boolean renamePages,
+                           CompressionProfile profile) throws ArchiveAdaptorException
     {
         logger.debug("Creating temporary file: " + filename);
 
         ZipArchiveOutputStream zoutput = null;
+        ArchiveHandlePool.Handle<ZipArchiveReader> sourceHandle = null;
+        ParallelZipEntryWriter writer = null;
         try
         {
-            ZipArchiveEntry entry;
+            ZipFile sourceArchive = null;
 
-            zoutput = (ZipArchiveOutputStream )new ArchiveStreamFactory().createArchiveOutputStream(ArchiveStreamFactory.ZIP,
-                                                                                                    new FileOutputStream(filename));
+            if (this.canCopyRawEntries(source))
+            {
+                logger.debug("Copying unchanged pages from source archive");
+                sourceHandle = this.borrowReader(new File(source.getFilename()));
+                sourceArchive = sourceHandle.get().getZipFile();
+            }
+
+            zoutput = new ZipArchiveOutputStream(new File(filename));
+            writer = new ParallelZipEntryWriter(zoutput, this.getCompressionThreads());
 
             logger.debug("Adding the ComicInfo.xml entry");
-            entry = new ZipArchiveEntry("ComicInfo.xml");
-            byte[] content = comicInfoEntryAdaptor.saveContent(source);
-            entry.setSize(content.length);
-            zoutput.putArchiveEntry(entry);
-            zoutput.write(content);
-            zoutput.closeArchiveEntry();
+            writer.addEntry("ComicInfo.xml", comicInfoEntryAdaptor.saveContent(source), profile);
 
             for (int index = 0;
                  index < source.getPageCount();
@@ -122,21 +469,51 @@ public class ZipArchiveAdaptor extends AbstractArchiveAdaptor
                     continue;
                 }
                 String pagename = renamePages ? getFilenameForEntry(page.getFilename(), index) : page.getFilename();
+                this.checkCancelled(pagename);
+                ZipArchiveEntry sourceEntry = (sourceArchive != null) ? sourceArchive.getEntry(page.getFilename())
+                                                                      : null;
+
+                // the compressed bytes can only be reused if the profile
+                // wouldn't have compressed them differently
+                if ((sourceEntry != null) && sourceArchive.canReadEntryData(sourceEntry)
+                    && profile.canCopyZipEntry(pagename, sourceEntry.getMethod()))
+                {
+                    logger.debug("Copying raw entry: " + pagename + " compressed size="
+                                 + sourceEntry.getCompressedSize());
+                    InputStream raw = sourceArchive.getRawInputStream(sourceEntry);
+                    try
+                    {
+                        writer.addRawEntry(this.createRawEntry(sourceEntry, pagename), raw);
+                    }
+                    finally
+                    {
+                        raw.close();
+                    }
+                    continue;
+                }
+
                 logger.debug("Adding entry: " + pagename + " size=" + page.getContent().length);
-                entry = new ZipArchiveEntry(pagename);
-                entry.setSize(page.getContent().length);
-                zoutput.putArchiveEntry(entry);
-                zoutput.write(page.getContent());
-                zoutput.closeArchiveEntry();
+                writer.addEntry(pagename, page.getContent(), profile);
             }
 
+            writer.flush();
             zoutput.finish();
             zoutput.close();
         }
-        catch (IOException
-               | ArchiveException error)
+        catch (IOException error)
         {
             throw new ArchiveAdaptorException("error creating comic archive", error);
         }
+        finally
+        {
+            if (writer != null)
+            {
+                writer.close();
+            }
+            if (sourceHandle != null)
+            {
+                sourceHandle.close();
+            }
+        }
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.comixed.library.utils.MappedSeekableByteChannel;
+
+/**
+ * <code>ZipArchiveReader</code> holds an open {@link ZipFile} along with the
+ * memory mapping it reads from, when the archive is memory-mapped.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+class ZipArchiveReader implements
+                       Closeable
+{
+    private final ZipFile zipFile;
+    private final MappedSeekableByteChannel mapping;
+
+    ZipArchiveReader(File file, boolean memoryMapped) throws IOException
+    {
+        if (memoryMapped && MappedSeekableByteChannel.canMap(file))
+        {
+            this.mapping = new MappedSeekableByteChannel(file);
+            this.zipFile = new ZipFile(this.mapping.duplicate(), file.getAbsolutePath(), "UTF8", true);
+        }
+        else
+        {
+            this.mapping = null;
+            this.zipFile = new ZipFile(file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.zipFile.close();
+        if (this.mapping != null)
+        {
+            this.mapping.close();
+        }
+    }
+
+    /**
+     * Returns the memory mapping of the archive.
+     *
+     * @return the mapping, or <code>null</code> if the archive is not mapped
+     */
+    MappedSeekableByteChannel getMapping()
+    {
+        return this.mapping;
+    }
+
+    ZipFile getZipFile()
+    {
+        return this.zipFile;
+    }
+}
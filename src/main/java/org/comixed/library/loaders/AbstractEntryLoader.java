@@ -19,6 +19,11 @@
 
 package org.comixed.library.loaders;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.comixed.library.model.Comic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,4 +38,22 @@ public abstract class AbstractEntryLoader implements
                                           EntryLoader
 {
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Reads the stream into memory and passes it to
+     * {@link #loadContent(Comic, String, byte[])}. Subclasses which can work
+     * directly from the stream should override this.
+     */
+    @Override
+    public void loadContent(Comic comic, String filename, long size, InputStream input) throws EntryLoaderException
+    {
+        try
+        {
+            this.loadContent(comic, filename, IOUtils.toByteArray(input));
+        }
+        catch (IOException error)
+        {
+            throw new EntryLoaderException("failed to read entry: " + filename, error);
+        }
+    }
 }
@@ -19,6 +19,8 @@
 
 package org.comixed.library.loaders;
 
+import java.io.InputStream;
+
 import org.comixed.library.model.Comic;
 
 /**
@@ -43,4 +45,23 @@ public interface EntryLoader
      *             if an error occurs while loading the content
      */
     void loadContent(Comic comic, String filename, byte[] content) throws EntryLoaderException;
+
+    /**
+     * Loads content into the specified comic, reading it directly from the
+     * archive's stream.
+     *
+     * The stream is read at most once and is not closed by the loader.
+     *
+     * @param comic
+     *            the comic
+     * @param filename
+     *            the content's filename
+     * @param size
+     *            the content's size, or -1 if it is not known
+     * @param input
+     *            the content stream
+     * @throws EntryLoaderException
+     *             if an error occurs while loading the content
+     */
+    void loadContent(Comic comic, String filename, long size, InputStream input) throws EntryLoaderException;
 }
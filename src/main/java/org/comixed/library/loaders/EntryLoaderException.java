@@ -32,6 +32,11 @@ public class EntryLoaderException extends Exception
 {
     private static final long serialVersionUID = -5175358262813656987L;
 
+    public EntryLoaderException(String message, Exception cause)
+    {
+        super(message, cause);
+    }
+
     public EntryLoaderException(XMLStreamException cause)
     {
         super(cause);
@@ -20,6 +20,7 @@
 package org.comixed.library.loaders;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -97,22 +98,41 @@ public class FilenameEntryLoader extends AbstractEntryLoader implements
         return this.loaders;
     }
 
-    @Override
-    public void loadContent(Comic comic, String filename, byte[] content) throws EntryLoaderException
+    private EntryLoader getLoaderForFilename(String filename)
     {
         // get the filename.ext only
         String key = new File(filename).getName();
         this.logger.debug("Determining filename adaptor for: " + filename);
-        EntryLoader loader = this.entryLoaders.get(key);
-        if (loader != null)
+        EntryLoader result = this.entryLoaders.get(key);
+        if (result != null)
         {
-            this.logger.debug("Using adaptor: " + loader);
-            loader.loadContent(comic, filename, content);
+            this.logger.debug("Using adaptor: " + result);
         }
         else
         {
             this.logger.debug("No filename adaptor defined");
         }
+        return result;
+    }
+
+    @Override
+    public void loadContent(Comic comic, String filename, byte[] content) throws EntryLoaderException
+    {
+        EntryLoader loader = this.getLoaderForFilename(filename);
+        if (loader != null)
+        {
+            loader.loadContent(comic, filename, content);
+        }
+    }
+
+    @Override
+    public void loadContent(Comic comic, String filename, long size, InputStream input) throws EntryLoaderException
+    {
+        EntryLoader loader = this.getLoaderForFilename(filename);
+        if (loader != null)
+        {
+            loader.loadContent(comic, filename, size, input);
+        }
     }
 
 }
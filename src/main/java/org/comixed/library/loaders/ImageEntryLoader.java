@@ -1,17 +1,17 @@
 /*
  * ComixEd - A digital comic book library management application.
  * Copyright (C) 2017, Darryl L. Pierce
- * 
+ *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
  * the Free Software Foundation, either version 3 of the License, or
  * (at your option) any later version.
- * 
+ *
  * This program is distributed in the hope that it will be useful,
  * but WITHOUT ANY WARRANTY; without even the implied warranty of
  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
  * GNU General Public License for more details.
- * 
+ *
  * You should have received a copy of the GNU General Public License
  * along with this program. If not, see <http://www.gnu.org/licenses/>.package
  * org.comixed;
@@ -19,8 +19,15 @@
 
 package org.comixed.library.loaders;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import org.comixed.library.model.Comic;
 import org.comixed.library.model.Page;
+import org.comixed.library.model.PageHashAlgorithm;
+import org.comixed.library.utils.SpillableOutputStream;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 /**
@@ -31,13 +38,78 @@ import org.springframework.stereotype.Component;
  *
  */
 @Component
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "comic.image-entry",
+                         ignoreUnknownFields = false)
 public class ImageEntryLoader extends AbstractEntryLoader
 {
+    private static final int BUFFER_SIZE = 8192;
+
+    private long spillThreshold = 8L * 1024L * 1024L;
+    private PageHashAlgorithm hashAlgorithm = PageHashAlgorithm.MD5;
+
+    public PageHashAlgorithm getHashAlgorithm()
+    {
+        return this.hashAlgorithm;
+    }
+
+    public long getSpillThreshold()
+    {
+        return this.spillThreshold;
+    }
+
     @Override
     public void loadContent(Comic comic, String filename, byte[] content)
     {
         logger.debug("Loading image into comic");
-        Page page = new Page(filename, content);
+        Page page = new Page(filename, content, this.hashAlgorithm);
+        comic.addPage(comic.getPageCount(), page);
+    }
+
+    /**
+     * Copies the image out of the stream while hashing it with the configured
+     * algorithm. Images larger than the spill threshold are kept in a
+     * temporary file rather than in memory.
+     */
+    @Override
+    public void loadContent(Comic comic, String filename, long size, InputStream input) throws EntryLoaderException
+    {
+        logger.debug("Streaming image into comic: size=" + size);
+        SpillableOutputStream content = new SpillableOutputStream(this.spillThreshold);
+        PageHashAlgorithm.Hasher hasher = this.hashAlgorithm.getHasher();
+
+        try
+        {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = input.read(buffer)) != -1)
+            {
+                hasher.update(buffer, 0, count);
+                content.write(buffer, 0, count);
+            }
+            content.close();
+        }
+        catch (IOException error)
+        {
+            // leave the thread's hasher clean for the next page
+            hasher.finish();
+            content.discard();
+            throw new EntryLoaderException("failed to load image: " + filename, error);
+        }
+        String hash = hasher.finish();
+
+        Page page = content.isInMemory() ? new Page(filename, content.toByteArray(), this.hashAlgorithm, hash)
+                                         : new Page(filename, content.getFile(), this.hashAlgorithm, hash);
         comic.addPage(comic.getPageCount(), page);
     }
+
+    public void setHashAlgorithm(PageHashAlgorithm hashAlgorithm)
+    {
+        this.hashAlgorithm = hashAlgorithm;
+    }
+
+    public void setSpillThreshold(long spillThreshold)
+    {
+        this.spillThreshold = spillThreshold;
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.model;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * <code>ArchiveEntryIndex</code> records where a single entry lives within its
+ * archive file so that it can be read directly without walking the archive's
+ * directory.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Embeddable
+public class ArchiveEntryIndex
+{
+    @Column(name = "entry_data_offset",
+            nullable = true)
+    private Long dataOffset;
+
+    @Column(name = "entry_compressed_size",
+            nullable = true)
+    private Long compressedSize;
+
+    @Column(name = "entry_size",
+            nullable = true)
+    private Long size;
+
+    @Column(name = "entry_method",
+            nullable = true)
+    private Integer method;
+
+    @Column(name = "entry_crc",
+            nullable = true)
+    private Long crc;
+
+    /**
+     * Default constructor.
+     */
+    public ArchiveEntryIndex()
+    {}
+
+    /**
+     * Creates a new instance with the given entry details.
+     *
+     * @param dataOffset
+     *            the offset of the entry's data within the archive
+     * @param compressedSize
+     *            the compressed size of the entry
+     * @param size
+     *            the uncompressed size of the entry
+     * @param method
+     *            the compression method
+     * @param crc
+     *            the CRC-32 of the uncompressed entry
+     */
+    public ArchiveEntryIndex(long dataOffset, long compressedSize, long size, int method, long crc)
+    {
+        this.dataOffset = dataOffset;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.method = method;
+        this.crc = crc;
+    }
+
+    /**
+     * Returns the compressed size of the entry.
+     *
+     * @return the compressed size
+     */
+    public long getCompressedSize()
+    {
+        return this.compressedSize != null ? this.compressedSize : -1L;
+    }
+
+    /**
+     * Returns the CRC-32 of the uncompressed entry.
+     *
+     * @return the CRC
+     */
+    public long getCrc()
+    {
+        return this.crc != null ? this.crc : -1L;
+    }
+
+    /**
+     * Returns the offset of the first byte of the entry's data within the
+     * archive file.
+     *
+     * @return the offset
+     */
+    public long getDataOffset()
+    {
+        return this.dataOffset != null ? this.dataOffset : -1L;
+    }
+
+    /**
+     * Returns the compression method used for the entry.
+     *
+     * @return the method
+     */
+    public int getMethod()
+    {
+        return this.method != null ? this.method : -1;
+    }
+
+    /**
+     * Returns the uncompressed size of the entry.
+     *
+     * @return the size
+     */
+    public long getSize()
+    {
+        return this.size != null ? this.size : -1L;
+    }
+
+    /**
+     * Returns if the index contains everything needed to locate the entry.
+     *
+     * @return true if the index is complete
+     */
+    public boolean isComplete()
+    {
+        return (this.dataOffset != null) && (this.dataOffset >= 0) && (this.compressedSize != null)
+               && (this.compressedSize >= 0) && (this.size != null) && (this.size >= 0) && (this.method != null)
+               && (this.crc != null) && (this.crc >= 0);
+    }
+}
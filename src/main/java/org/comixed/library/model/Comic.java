@@ -24,6 +24,7 @@ import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.CascadeType;
 import javax.persistence.CollectionTable;
@@ -40,12 +41,14 @@ import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
 import javax.persistence.OneToMany;
 import javax.persistence.OrderColumn;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.persistence.Transient;
 
 import org.apache.commons.io.FilenameUtils;
+import org.comixed.library.adaptors.ArchiveAdaptorException;
 import org.hibernate.annotations.LazyCollection;
 import org.hibernate.annotations.LazyCollectionOption;
 import org.slf4j.Logger;
@@ -65,7 +68,11 @@ public class Comic
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+                    generator = "comic_id_seq")
+    @SequenceGenerator(name = "comic_id_seq",
+                       sequenceName = "comic_id_seq",
+                       allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -645,6 +652,59 @@ public class Comic
         return (this.teams.isEmpty() == false);
     }
 
+    /**
+     * Loads the content of every page that has not yet been loaded, reading
+     * the archive once rather than once per page.
+     *
+     * Pages which could not be loaded here will still load their content
+     * individually when it is requested.
+     */
+    public void loadPageContents()
+    {
+        if (this.archiveType == null) return;
+
+        List<String> entryNames = new ArrayList<>();
+        for (Page page : this.pages)
+        {
+            if (!page.isMarkedDeleted() && !page.hasContent())
+            {
+                entryNames.add(page.getFilename());
+            }
+        }
+        if (entryNames.isEmpty()) return;
+
+        this.logger.debug("Loading content for " + entryNames.size() + " pages");
+        try
+        {
+            Map<String,
+                byte[]> content = this.archiveType.getArchiveAdaptor().loadEntries(this, entryNames);
+            for (Page page : this.pages)
+            {
+                if (content.containsKey(page.getFilename()) && !page.hasContent())
+                {
+                    page.setContent(content.get(page.getFilename()));
+                }
+            }
+        }
+        catch (ArchiveAdaptorException error)
+        {
+            this.logger.warn("failed to load page contents: " + this.filename, error);
+        }
+    }
+
+    /**
+     * Deletes the temporary files holding any page content spilled to disk
+     * while the comic was loaded. Called once the comic has been saved or
+     * dropped.
+     */
+    public void releaseContentFiles()
+    {
+        for (Page page : this.pages)
+        {
+            page.releaseContentFile();
+        }
+    }
+
     public void setArchiveType(ArchiveType archiveType)
     {
         this.archiveType = archiveType;
@@ -0,0 +1,74 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * <code>ComicChangeEvent</code> describes which comics were added, updated or
+ * removed from the library, by id, so that the {@link ComicSelectionModel} can
+ * apply just those changes rather than reloading every comic.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class ComicChangeEvent
+{
+    private final Set<Long> added;
+    private final Set<Long> updated;
+    private final Set<Long> removed;
+
+    public ComicChangeEvent(Collection<Long> added, Collection<Long> updated, Collection<Long> removed)
+    {
+        this.added = Collections.unmodifiableSet(new LinkedHashSet<>(added));
+        this.updated = Collections.unmodifiableSet(new LinkedHashSet<>(updated));
+        this.removed = Collections.unmodifiableSet(new LinkedHashSet<>(removed));
+    }
+
+    public Set<Long> getAdded()
+    {
+        return this.added;
+    }
+
+    public Set<Long> getRemoved()
+    {
+        return this.removed;
+    }
+
+    public Set<Long> getUpdated()
+    {
+        return this.updated;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.added.isEmpty() && this.updated.isEmpty() && this.removed.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Comic changes: added=" + this.added.size() + " updated=" + this.updated.size() + " removed="
+               + this.removed.size();
+    }
+}
@@ -19,10 +19,8 @@
 
 package org.comixed.library.model;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -30,7 +28,7 @@ import java.util.Map;
 
 import org.comixed.library.adaptors.ArchiveAdaptor;
 import org.comixed.library.adaptors.ArchiveAdaptorException;
-import org.comixed.library.utils.FileTypeIdentifier;
+import org.comixed.library.utils.ArchiveTypeDetector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -61,7 +59,7 @@ public class ComicFileHandler implements
     @Autowired
     private ApplicationContext context;
     @Autowired
-    private FileTypeIdentifier fileTypeIdentifier;
+    private ArchiveTypeDetector archiveTypeDetector;
     @Autowired
     private Map<String,
                 ArchiveAdaptor> archiveAdaptors;
@@ -119,19 +117,21 @@ public class ComicFileHandler implements
         }
         logger.debug("Loading comic: " + comic.getFilename());
 
-        String archiveType = null;
+        ArchiveTypeDetector.Format format = null;
 
         try
         {
-            InputStream input = new BufferedInputStream(new FileInputStream(comic.getFilename()));
-            archiveType = fileTypeIdentifier.typeFor(input);
+            format = archiveTypeDetector.detect(new File(comic.getFilename()));
         }
-        catch (FileNotFoundException error)
+        catch (IOException error)
         {
             throw new ComicFileHandlerException("Unable to load comic file", error);
         }
 
-        if (archiveType == null) { throw new ComicFileHandlerException("Unknown comic type"); }
+        if (format == null) { throw new ComicFileHandlerException("Unknown comic type"); }
+        if (!format.isSupported()) { throw new ComicFileHandlerException("Unsupported comic format: " + format); }
+
+        String archiveType = format.getType();
 
         ArchiveAdaptor archiveAdaptor = archiveAdaptors.get(archiveType);
 
@@ -0,0 +1,270 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.model;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>ComicReloadScheduler</code> coalesces requests to reload the
+ * {@link ComicSelectionModel}, so that a burst of changes causes one reload
+ * rather than one per change.
+ *
+ * Callers that know which comics changed report them by id, and those changes
+ * are applied to the model as a single {@link ComicChangeEvent}. A full reload
+ * is only done when one is explicitly requested.
+ *
+ * The model is updated once no request has arrived for the quiet period, but
+ * never later than the maximum latency after the first unserved request. While
+ * a {@link BulkOperation} is open, requests are only recorded, and a single
+ * update happens when the last bulk operation closes.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "comic.reload",
+                         ignoreUnknownFields = false)
+public class ComicReloadScheduler implements
+                                  InitializingBean,
+                                  DisposableBean
+{
+    /**
+     * <code>BulkOperation</code> suppresses reloads until it is closed.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    public class BulkOperation implements
+                               AutoCloseable
+    {
+        private boolean closed = false;
+
+        @Override
+        public void close()
+        {
+            synchronized (ComicReloadScheduler.this)
+            {
+                if (this.closed) return;
+                this.closed = true;
+                ComicReloadScheduler.this.endBulkOperation();
+            }
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private ComicSelectionModel comicSelectionModel;
+
+    private long quietPeriod = 250L;
+    private long maximumLatency = 2000L;
+    private ScheduledExecutorService timer;
+    private ScheduledFuture<?> scheduled;
+    private long firstRequest = 0L;
+    private int bulkOperations = 0;
+    private boolean fullReload = false;
+    private Set<Long> added = new LinkedHashSet<>();
+    private Set<Long> updated = new LinkedHashSet<>();
+    private Set<Long> removed = new LinkedHashSet<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread result = new Thread(runnable, "ComixEd-Reload");
+            result.setDaemon(true);
+            return result;
+        });
+    }
+
+    /**
+     * Starts a bulk operation, during which no reloads happen.
+     *
+     * @return the operation, to be closed when the work is done
+     */
+    public synchronized BulkOperation beginBulkOperation()
+    {
+        this.bulkOperations++;
+        this.logger.debug("Beginning bulk operation: depth=" + this.bulkOperations);
+        return new BulkOperation();
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        this.timer.shutdownNow();
+    }
+
+    private void endBulkOperation()
+    {
+        this.bulkOperations--;
+        this.logger.debug("Ending bulk operation: depth=" + this.bulkOperations);
+        if ((this.bulkOperations == 0) && (this.firstRequest != 0L))
+        {
+            this.schedule(0L);
+        }
+    }
+
+    public long getMaximumLatency()
+    {
+        return this.maximumLatency;
+    }
+
+    public long getQuietPeriod()
+    {
+        return this.quietPeriod;
+    }
+
+    /**
+     * Records that comics were added to the library.
+     *
+     * @param ids
+     *            the comic ids
+     */
+    public synchronized void comicsAdded(Collection<Long> ids)
+    {
+        if (ids.isEmpty()) return;
+
+        this.added.addAll(ids);
+        this.requestUpdate();
+    }
+
+    /**
+     * Records that comics were removed from the library.
+     *
+     * @param ids
+     *            the comic ids
+     */
+    public synchronized void comicsRemoved(Collection<Long> ids)
+    {
+        if (ids.isEmpty()) return;
+
+        for (Long id : ids)
+        {
+            this.updated.remove(id);
+            // a comic added since the last update never reached the table
+            if (!this.added.remove(id)) this.removed.add(id);
+        }
+        this.requestUpdate();
+    }
+
+    /**
+     * Records that comics in the library were updated.
+     *
+     * @param ids
+     *            the comic ids
+     */
+    public synchronized void comicsUpdated(Collection<Long> ids)
+    {
+        if (ids.isEmpty()) return;
+
+        for (Long id : ids)
+        {
+            if (!this.added.contains(id)) this.updated.add(id);
+        }
+        this.requestUpdate();
+    }
+
+    private void performReload()
+    {
+        boolean reload;
+        ComicChangeEvent event;
+
+        synchronized (this)
+        {
+            if ((this.firstRequest == 0L) || (this.bulkOperations > 0)) return;
+            this.logger.debug("Updating comics after " + (System.currentTimeMillis() - this.firstRequest) + "ms");
+            reload = this.fullReload;
+            event = new ComicChangeEvent(this.added, this.updated, this.removed);
+            this.firstRequest = 0L;
+            this.scheduled = null;
+            this.fullReload = false;
+            this.added = new LinkedHashSet<>();
+            this.updated = new LinkedHashSet<>();
+            this.removed = new LinkedHashSet<>();
+        }
+        if (reload)
+        {
+            this.comicSelectionModel.reload();
+        }
+        else
+        {
+            this.comicSelectionModel.applyChanges(event);
+        }
+    }
+
+    /**
+     * Requests that all comics be reloaded, for when the changes are not known.
+     */
+    public synchronized void requestReload()
+    {
+        this.fullReload = true;
+        this.requestUpdate();
+    }
+
+    private void requestUpdate()
+    {
+        long now = System.currentTimeMillis();
+
+        if (this.firstRequest == 0L)
+        {
+            this.firstRequest = now;
+        }
+        if (this.bulkOperations > 0) return;
+
+        this.schedule(Math.max(0L, Math.min(this.quietPeriod, (this.firstRequest + this.maximumLatency) - now)));
+    }
+
+    private void schedule(long delay)
+    {
+        if (this.scheduled != null)
+        {
+            this.scheduled.cancel(false);
+        }
+        this.scheduled = this.timer.schedule(this::performReload, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public void setMaximumLatency(long maximumLatency)
+    {
+        this.maximumLatency = maximumLatency;
+    }
+
+    public void setQuietPeriod(long quietPeriod)
+    {
+        this.quietPeriod = quietPeriod;
+    }
+}
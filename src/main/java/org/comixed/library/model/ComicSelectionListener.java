@@ -37,4 +37,46 @@ public interface ComicSelectionListener
      * Invoked when the list of comics in the model changes.
      */
     void comicListChanged();
+
+    /**
+     * Invoked when comics are inserted into the model. By default the whole
+     * list is treated as changed.
+     *
+     * @param firstIndex
+     *            the index of the first inserted comic
+     * @param lastIndex
+     *            the index of the last inserted comic
+     */
+    default void comicsInserted(int firstIndex, int lastIndex)
+    {
+        this.comicListChanged();
+    }
+
+    /**
+     * Invoked when comics in the model are updated. By default the whole list
+     * is treated as changed.
+     *
+     * @param firstIndex
+     *            the index of the first updated comic
+     * @param lastIndex
+     *            the index of the last updated comic
+     */
+    default void comicsUpdated(int firstIndex, int lastIndex)
+    {
+        this.comicListChanged();
+    }
+
+    /**
+     * Invoked after comics are removed from the model. By default the whole
+     * list is treated as changed.
+     *
+     * @param firstIndex
+     *            the index the first removed comic had
+     * @param lastIndex
+     *            the index the last removed comic had
+     */
+    default void comicsRemoved(int firstIndex, int lastIndex)
+    {
+        this.comicListChanged();
+    }
 }
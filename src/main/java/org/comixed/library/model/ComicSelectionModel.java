@@ -20,9 +20,14 @@
 package org.comixed.library.model;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.swing.DefaultListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
@@ -31,6 +36,9 @@ import org.comixed.repositories.PageRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
 /**
@@ -40,13 +48,21 @@ import org.springframework.stereotype.Component;
  * By default, it references all comics in the library. But the set is reduced
  * to those that meet filtering criteria as they're applied.
  *
+ * Comics are ordered by id and their summaries are fetched a page at a time as
+ * rows are read, and only the most recently used pages are kept, so the memory
+ * used doesn't grow with the size of the library. The number of comics comes
+ * from a count query. A full comic is only loaded when it is asked for.
+ *
  * @author Darryl L. Pierce
  *
  */
 @Component
+@ConfigurationProperties(prefix = "comic.selection-model")
 public class ComicSelectionModel implements
                                  ListSelectionListener
 {
+    static final Sort ORDER = new Sort("id");
+
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Autowired
@@ -55,10 +71,26 @@ public class ComicSelectionModel implements
     @Autowired
     private PageRepository pageRepository;
 
-    List<Comic> allComics = new ArrayList<>();
+    private int pageSize = 100;
+    private int cachedPages = 10;
+
+    Map<Integer,
+        List<ComicSummary>> pages = new LinkedHashMap<Integer,
+                                                      List<ComicSummary>>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer,
+                                                          List<ComicSummary>> eldest)
+            {
+                return this.size() > ComicSelectionModel.this.cachedPages;
+            }
+        };
+    int comicCount = 0;
     boolean reload = true;
     List<ComicSelectionListener> listeners = new ArrayList<>();
-    List<Comic> selections = new ArrayList<>();
+    List<ComicSummary> selections = new ArrayList<>();
 
     /**
      * Adds a new listener.
@@ -72,6 +104,106 @@ public class ComicSelectionModel implements
         this.listeners.add(listener);
     }
 
+    /**
+     * Applies the given changes, telling listeners which rows changed, without
+     * reloading the comics that were not affected.
+     *
+     * The rows are found with count queries on the indexed id. The loaded pages
+     * are dropped, since the changed rows shift the comics that follow them.
+     *
+     * If the comics have not been counted yet then nothing is done, since they
+     * will be fetched when next needed.
+     *
+     * The changes are applied on the event dispatch thread, so that the table
+     * never sees the count change between the row events describing it.
+     *
+     * @param event
+     *            the changes
+     */
+    public void applyChanges(ComicChangeEvent event)
+    {
+        if (event.isEmpty()) return;
+        if (!SwingUtilities.isEventDispatchThread())
+        {
+            SwingUtilities.invokeLater(() -> this.applyChanges(event));
+            return;
+        }
+
+        synchronized (this)
+        {
+            if (this.reload) return;
+            this.logger.debug("Applying changes: " + event);
+            this.pages.clear();
+        }
+
+        // the added comics are in the database but not yet in the table
+        TreeSet<Long> added = new TreeSet<>(event.getAdded());
+        TreeSet<Long> removed = new TreeSet<>(event.getRemoved());
+
+        // remove from the end so the rows still to be removed don't shift
+        for (Long id : removed.descendingSet())
+        {
+            int index = (int )(this.comicRepository.countByIdLessThan(id) - added.headSet(id).size()
+                               + removed.headSet(id).size());
+            this.updateCount(-1);
+            this.fireComicsRemovedEvent(index, index);
+        }
+        this.removeSelections(removed);
+
+        for (Long id : event.getUpdated())
+        {
+            long position = this.comicRepository.countByIdLessThan(id);
+            int index = (int )(position - added.headSet(id).size());
+            this.replaceSelection(id, (int )position);
+            this.fireComicsUpdatedEvent(index, index);
+        }
+
+        if (added.isEmpty()) return;
+
+        long first = this.comicRepository.countByIdLessThan(added.first());
+        long last = this.comicRepository.countByIdLessThan(added.last());
+        if ((last - first) == (added.size() - 1))
+        {
+            // nothing else falls between them, usually because they were
+            // appended to the end of the library
+            this.updateCount(added.size());
+            this.fireComicsInsertedEvent((int )first, (int )last);
+        }
+        else
+        {
+            for (Long id : added)
+            {
+                int index = (int )this.comicRepository.countByIdLessThan(id);
+                this.updateCount(1);
+                this.fireComicsInsertedEvent(index, index);
+            }
+        }
+    }
+
+    void fireComicsInsertedEvent(int firstIndex, int lastIndex)
+    {
+        for (ComicSelectionListener listener : this.listeners)
+        {
+            listener.comicsInserted(firstIndex, lastIndex);
+        }
+    }
+
+    void fireComicsRemovedEvent(int firstIndex, int lastIndex)
+    {
+        for (ComicSelectionListener listener : this.listeners)
+        {
+            listener.comicsRemoved(firstIndex, lastIndex);
+        }
+    }
+
+    void fireComicsUpdatedEvent(int firstIndex, int lastIndex)
+    {
+        for (ComicSelectionListener listener : this.listeners)
+        {
+            listener.comicsUpdated(firstIndex, lastIndex);
+        }
+    }
+
     void fireListChangedEvent()
     {
         for (ComicSelectionListener listener : this.listeners)
@@ -89,19 +221,27 @@ public class ComicSelectionModel implements
     }
 
     /**
-     * Returns all loaded comics.
+     * Returns every comic in the library, fetched fresh from the repository.
+     * The comics are not kept by the model, so only use this when the whole
+     * library is really needed.
      *
      * @return all comics
      */
     public List<Comic> getAllComics()
     {
         this.logger.debug("Returning all comics");
-        if (this.reload) this.reloadComics();
-        return this.allComics;
+        List<Comic> result = new ArrayList<>();
+        this.comicRepository.findAll(ORDER).forEach(result::add);
+        return result;
+    }
+
+    public int getCachedPages()
+    {
+        return this.cachedPages;
     }
 
     /**
-     * Returns the comic at the specified index.
+     * Returns the comic at the specified index, loading it in full.
      *
      * @param index
      *            the index
@@ -109,13 +249,24 @@ public class ComicSelectionModel implements
      */
     public Comic getComic(int index)
     {
-        if (this.reload)
-        {
-            this.reloadComics();
-        }
+        this.logger.debug("Return comic: index=" + index);
+        return this.comicRepository.findOne(this.getComicSummary(index).getId());
+    }
+
+    /**
+     * Returns the summary of the comic at the specified index.
+     *
+     * @param index
+     *            the index
+     * @return the summary
+     */
+    public synchronized ComicSummary getComicSummary(int index)
+    {
+        List<ComicSummary> page = this.getPage(index / this.pageSize);
+        int offset = index % this.pageSize;
 
-        this.logger.debug("Return allComics comic: index=" + index);
-        return this.allComics.get(index);
+        if (offset >= page.size()) throw new IndexOutOfBoundsException("Invalid comic: index=" + index);
+        return page.get(offset);
     }
 
     /**
@@ -123,14 +274,38 @@ public class ComicSelectionModel implements
      *
      * @return
      */
-    public int getComicCount()
+    public synchronized int getComicCount()
     {
         if (this.reload)
         {
             this.reloadComics();
         }
-        int result = (this.allComics != null) ? this.allComics.size() : 0;
-        this.logger.debug("Return comic count: " + result);
+        this.logger.debug("Return comic count: " + this.comicCount);
+        return this.comicCount;
+    }
+
+    /**
+     * Returns the summaries of up to the given number of comics, starting at an
+     * index.
+     *
+     * @param first
+     *            the index of the first comic
+     * @param count
+     *            the maximum number of comics
+     * @return the summaries
+     */
+    public synchronized List<ComicSummary> getComicSummaries(int first, int count)
+    {
+        List<ComicSummary> result = new ArrayList<>();
+        int last = Math.min(first + count, this.getComicCount());
+
+        for (int index = first;
+             index < last;
+             index++)
+        {
+            result.add(this.getComicSummary(index));
+        }
+
         return result;
     }
 
@@ -140,14 +315,56 @@ public class ComicSelectionModel implements
         return this.pageRepository.getDuplicatePageCount();
     }
 
+    private List<ComicSummary> getPage(int number)
+    {
+        if (this.reload) this.reloadComics();
+
+        List<ComicSummary> result = this.pages.get(number);
+        if (result == null)
+        {
+            this.logger.debug("Fetching page of comics: page=" + number);
+            result = this.comicRepository.findSummaries(new PageRequest(number, this.pageSize, ORDER)).getContent();
+            this.pages.put(number, result);
+        }
+        return result;
+    }
+
+    public int getPageSize()
+    {
+        return this.pageSize;
+    }
+
     /**
-     * Returns only those comics that are allComics.
+     * Returns the selected comics, loaded in full with a single query. Only
+     * use this from the actions that need the whole comic, since the
+     * selection itself only holds summaries.
      *
-     * @return the allComics comics
+     * @return the selected comics
      */
     public List<Comic> getSelectedComics()
     {
-        this.logger.debug("Returning allComics comics");
+        this.logger.debug("Loading selected comics: count=" + this.selections.size());
+        List<Comic> result = new ArrayList<>();
+        if (this.selections.isEmpty()) return result;
+
+        List<Long> ids = new ArrayList<>();
+        for (ComicSummary summary : this.selections)
+        {
+            ids.add(summary.getId());
+        }
+        this.comicRepository.findAll(ids).forEach(result::add);
+        // the rows are ordered by id
+        result.sort((first, second) -> first.getId().compareTo(second.getId()));
+        return result;
+    }
+
+    /**
+     * Returns the summaries of the selected comics.
+     *
+     * @return the summaries
+     */
+    public List<ComicSummary> getSelectedComicSummaries()
+    {
         return this.selections;
     }
 
@@ -166,20 +383,61 @@ public class ComicSelectionModel implements
      */
     public void reload()
     {
-        this.reload = true;
+        synchronized (this)
+        {
+            this.reload = true;
+            this.pages.clear();
+        }
         this.fireListChangedEvent();
     }
 
     private void reloadComics()
     {
-        this.logger.debug("Fetching comics");
-        Iterable<Comic> selection = this.comicRepository.findAll();
-        this.allComics.clear();
-        selection.forEach(this.allComics::add);
+        this.logger.debug("Counting comics");
+        this.comicCount = (int )this.comicRepository.count();
+        this.pages.clear();
         this.reload = false;
         this.fireSelectionChangedEvent();
     }
 
+    private void removeSelections(Set<Long> ids)
+    {
+        this.selections.removeIf(comic -> ids.contains(comic.getId()));
+    }
+
+    /**
+     * Replaces the summary of an updated comic if it is selected, reading it
+     * through the page that holds it.
+     */
+    private void replaceSelection(Long id, int position)
+    {
+        for (int index = 0;
+             index < this.selections.size();
+             index++)
+        {
+            if (id.equals(this.selections.get(index).getId()))
+            {
+                ComicSummary summary = this.getComicSummary(position);
+                if (id.equals(summary.getId())) this.selections.set(index, summary);
+            }
+        }
+    }
+
+    public void setCachedPages(int cachedPages)
+    {
+        this.cachedPages = cachedPages;
+    }
+
+    public void setPageSize(int pageSize)
+    {
+        this.pageSize = pageSize;
+    }
+
+    private synchronized void updateCount(int delta)
+    {
+        this.comicCount += delta;
+    }
+
     @Override
     public void valueChanged(ListSelectionEvent event)
     {
@@ -199,7 +457,7 @@ public class ComicSelectionModel implements
                     this.logger.debug("Selected: index=" + index);
                     if (source.isSelectedIndex(index))
                     {
-                        this.selections.add(this.getComic(index));
+                        this.selections.add(this.getComicSummary(index));
                     }
                 }
             }
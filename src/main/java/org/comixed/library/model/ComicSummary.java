@@ -0,0 +1,178 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.model;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * <code>ComicSummary</code> is a read-only view of the scalar details of a
+ * {@link Comic}, used by the library views so they don't need to load each
+ * comic's pages or tags.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class ComicSummary
+{
+    private final Long id;
+    private final String filename;
+    private final ArchiveType archiveType;
+    private final String publisher;
+    private final String series;
+    private final String volume;
+    private final String issueNumber;
+    private final Date coverDate;
+    private final Date dateAdded;
+    private final Date dateLastRead;
+    private final String description;
+    private final String summary;
+    private final int pageCount;
+
+    /**
+     * Creates a summary of a comic that's already loaded.
+     *
+     * @param comic
+     *            the comic
+     */
+    public ComicSummary(Comic comic)
+    {
+        this(comic.getId(), comic.getFilename(), comic.getArchiveType(), comic.getPublisher(), comic.getSeries(),
+             comic.getVolume(), comic.getIssueNumber(), comic.getCoverDate(), comic.getDateAdded(),
+             comic.getDateLastRead(), comic.getDescription(), comic.getSummary(), comic.getPageCount());
+    }
+
+    /**
+     * Creates a summary from the columns selected by the repository.
+     */
+    public ComicSummary(Long id,
+                        String filename,
+                        ArchiveType archiveType,
+                        String publisher,
+                        String series,
+                        String volume,
+                        String issueNumber,
+                        Date coverDate,
+                        Date dateAdded,
+                        Date dateLastRead,
+                        String description,
+                        String summary,
+                        Number pageCount)
+    {
+        this.id = id;
+        this.filename = filename;
+        this.archiveType = archiveType;
+        this.publisher = publisher;
+        this.series = series;
+        this.volume = volume;
+        this.issueNumber = issueNumber;
+        this.coverDate = coverDate;
+        this.dateAdded = dateAdded;
+        this.dateLastRead = dateLastRead;
+        this.description = description;
+        this.summary = summary;
+        this.pageCount = (pageCount != null) ? pageCount.intValue() : 0;
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if (this == object) return true;
+        if (!(object instanceof ComicSummary)) return false;
+        return Objects.equals(this.id, ((ComicSummary )object).id);
+    }
+
+    public ArchiveType getArchiveType()
+    {
+        return this.archiveType;
+    }
+
+    public Date getCoverDate()
+    {
+        return this.coverDate;
+    }
+
+    public Date getDateAdded()
+    {
+        return this.dateAdded;
+    }
+
+    public Date getDateLastRead()
+    {
+        return this.dateLastRead;
+    }
+
+    public String getDescription()
+    {
+        return this.description;
+    }
+
+    public String getFilename()
+    {
+        return this.filename;
+    }
+
+    public Long getId()
+    {
+        return this.id;
+    }
+
+    public String getIssueNumber()
+    {
+        return this.issueNumber;
+    }
+
+    public int getPageCount()
+    {
+        return this.pageCount;
+    }
+
+    public String getPublisher()
+    {
+        return this.publisher;
+    }
+
+    public String getSeries()
+    {
+        return this.series;
+    }
+
+    public String getSummary()
+    {
+        return this.summary;
+    }
+
+    public String getVolume()
+    {
+        return this.volume;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(this.id);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Comic summary: id=" + this.id + " filename=" + this.filename;
+    }
+}
@@ -22,8 +22,12 @@ package org.comixed.library.model;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.swing.table.DefaultTableModel;
 
@@ -42,6 +46,12 @@ import org.springframework.stereotype.Component;
  * <code>ComicTableModel</code> provides the model for viewing the set of comics
  * in the library.
  *
+ * Values are read from each comic's {@link ComicSummary}. A column that the
+ * summary doesn't provide, such as Locations, is looked up for each row as it's
+ * shown with the matching <code>find</code> query on {@link ComicRepository},
+ * and the most recently shown values are kept. A comic is only loaded in full
+ * when a cell is edited, or for a column with no such query.
+ *
  * @author Darryl L. Pierce
  *
  */
@@ -79,7 +89,7 @@ public class ComicTableModel extends DefaultTableModel implements
             return this.property;
         }
 
-        public boolean isEditable(Comic comic)
+        public boolean isEditable()
         {
             // explicit configuration overrides any determination
             if (this.editable != null) return this.editable;
@@ -87,7 +97,7 @@ public class ComicTableModel extends DefaultTableModel implements
             Method method = null;
             try
             {
-                method = comic.getClass().getMethod("get" + this.property);
+                method = Comic.class.getMethod("get" + this.property);
             }
             catch (NoSuchMethodException
                    | SecurityException error)
@@ -114,6 +124,7 @@ public class ComicTableModel extends DefaultTableModel implements
     }
 
     private static final long serialVersionUID = -2124724909306232112L;
+    private static final int CACHED_LOOKUPS = 1000;
 
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -124,6 +135,22 @@ public class ComicTableModel extends DefaultTableModel implements
     @Autowired
     private ComicRepository comicRepository;
     List<ColumnDefinition> columnNames = new ArrayList<>();
+    Map<Long,
+        Map<String,
+            Object>> lookups = new LinkedHashMap<Long,
+                                                 Map<String,
+                                                     Object>>(16, 0.75f, true)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long,
+                                                              Map<String,
+                                                                  Object>> eldest)
+                {
+                    return this.size() > CACHED_LOOKUPS;
+                }
+            };
 
     @Override
     public void afterPropertiesSet() throws Exception
@@ -135,9 +162,29 @@ public class ComicTableModel extends DefaultTableModel implements
     @Override
     public void comicListChanged()
     {
+        this.lookups.clear();
         this.fireTableDataChanged();
     }
 
+    @Override
+    public void comicsInserted(int firstIndex, int lastIndex)
+    {
+        this.fireTableRowsInserted(firstIndex, lastIndex);
+    }
+
+    @Override
+    public void comicsRemoved(int firstIndex, int lastIndex)
+    {
+        this.fireTableRowsDeleted(firstIndex, lastIndex);
+    }
+
+    @Override
+    public void comicsUpdated(int firstIndex, int lastIndex)
+    {
+        this.lookups.clear();
+        this.fireTableRowsUpdated(firstIndex, lastIndex);
+    }
+
     @Override
     public int getColumnCount()
     {
@@ -183,15 +230,25 @@ public class ComicTableModel extends DefaultTableModel implements
     public Object getValueAt(int row, int column)
     {
         this.logger.debug("Getting value at " + row + "x" + column);
-        Comic comic = (this.comicSelectionModel != null) ? this.comicSelectionModel.getComic(row) : null;
+        ComicSummary comic = (this.comicSelectionModel != null) ? this.comicSelectionModel.getComicSummary(row)
+                                                                : null;
 
         if (comic != null)
         {
             if (column < this.columnNames.size())
             {
+                String property = this.columnNames.get(column).getProperty();
                 try
                 {
-                    Method method = comic.getClass().getMethod("get" + this.columnNames.get(column).getProperty());
+                    Method method = null;
+                    try
+                    {
+                        method = ComicSummary.class.getMethod("get" + property);
+                    }
+                    catch (NoSuchMethodException error)
+                    {
+                        return this.lookupValue(row, comic, property);
+                    }
 
                     return method.invoke(comic);
                 }
@@ -211,10 +268,40 @@ public class ComicTableModel extends DefaultTableModel implements
         return null;
     }
 
+    private Object lookupValue(int row, ComicSummary comic, String property) throws IllegalAccessException,
+                                                                             InvocationTargetException,
+                                                                             NoSuchMethodException
+    {
+        Map<String,
+            Object> values = this.lookups.get(comic.getId());
+        if (values == null)
+        {
+            values = new HashMap<>();
+            this.lookups.put(comic.getId(), values);
+        }
+        if (values.containsKey(property)) return values.get(property);
+
+        Object result = null;
+        try
+        {
+            Method finder = ComicRepository.class.getMethod("find" + property, Long.class);
+            this.logger.debug("Looking up property: id=" + comic.getId() + " property=" + property);
+            result = finder.invoke(this.comicRepository, comic.getId());
+        }
+        catch (NoSuchMethodException error)
+        {
+            // only the full comic has this property
+            this.logger.debug("Loading comic for property: " + property);
+            result = Comic.class.getMethod("get" + property).invoke(this.comicSelectionModel.getComic(row));
+        }
+        values.put(property, result);
+        return result;
+    }
+
     @Override
     public boolean isCellEditable(int row, int column)
     {
-        boolean result = this.columnNames.get(column).isEditable(this.comicSelectionModel.getComic(row));
+        boolean result = this.columnNames.get(column).isEditable();
         this.logger.debug("Is cell editable? row=" + row + " column=" + column + " editable=" + result);
         return result;
     }
@@ -251,6 +338,9 @@ public class ComicTableModel extends DefaultTableModel implements
         {
             method.invoke(comic, value);
             comicRepository.save(comic);
+            this.comicSelectionModel.applyChanges(new ComicChangeEvent(Collections.emptySet(),
+                                                                       Collections.singleton(comic.getId()),
+                                                                       Collections.emptySet()));
         }
         catch (IllegalAccessException
                | IllegalArgumentException
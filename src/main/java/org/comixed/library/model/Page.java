@@ -21,28 +21,39 @@ package org.comixed.library.model;
 
 import java.awt.Image;
 import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.WeakHashMap;
 
 import javax.imageio.ImageIO;
 import javax.persistence.Column;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.comixed.library.adaptors.ArchiveAdaptorException;
+import org.comixed.library.utils.ByteBufferInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,12 +64,15 @@ import org.slf4j.LoggerFactory;
  *
  */
 @Entity
-@Table(name = "pages")
+@Table(name = "pages",
+       indexes =
+       {@Index(name = "pages_hash_idx",
+               columnList = "hash")})
 @NamedQueries(
 {@NamedQuery(name = "Page.getDuplicatePageList",
-             query = "SELECT p FROM Page p WHERE p.hash IN (SELECT d.hash FROM Page d GROUP BY d.hash HAVING COUNT(*) > 1)"),
+             query = "SELECT p FROM Page p WHERE p.hash IN (SELECT h.hash FROM PageHashCount h WHERE h.pageCount > 1) ORDER BY p.hash, p.id"),
  @NamedQuery(name = "Page.getDuplicatePageCount",
-             query = "SELECT COUNT(p) FROM Page p WHERE p.hash IN (SELECT d.hash FROM Page d GROUP BY d.hash HAVING COUNT(*) > 1)"),})
+             query = "SELECT COALESCE(SUM(h.pageCount), 0) FROM PageHashCount h WHERE h.pageCount > 1"),})
 public class Page
 {
     private static final String MISSING_PAGE_URL = "/images/missing.png";
@@ -82,11 +96,27 @@ public class Page
         return String.valueOf(width) + "x" + String.valueOf(height);
     }
 
+    /**
+     * Formats a digest the way page hashes are stored.
+     *
+     * @param digest
+     *            the digest bytes
+     * @return the hash string
+     */
+    public static String formatHash(byte[] digest)
+    {
+        return new BigInteger(1, digest).toString(16).toUpperCase();
+    }
+
     @Transient
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+                    generator = "page_id_seq")
+    @SequenceGenerator(name = "page_id_seq",
+                       sequenceName = "page_id_seq",
+                       allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -103,14 +133,33 @@ public class Page
             nullable = false)
     private String hash;
 
+    // pages saved before algorithms were recorded have no value here and
+    // were hashed with MD5
+    @Column(name = "hash_algorithm",
+            updatable = true,
+            nullable = true)
+    @Enumerated(EnumType.STRING)
+    private PageHashAlgorithm hashAlgorithm;
+
     @Column(name = "deleted",
             updatable = true,
             nullable = false)
     private boolean deleted = false;
 
+    @Embedded
+    private ArchiveEntryIndex entryIndex;
+
     @Transient
     private byte[] content;
 
+    @Transient
+    private File contentFile;
+
+    // spilled content is large, so once read it is only held until the heap
+    // needs the space
+    @Transient
+    private SoftReference<byte[]> contentFileCache;
+
     @Transient
     private Image icon;
 
@@ -125,7 +174,8 @@ public class Page
     {}
 
     /**
-     * Creates a new instance with the given filename and image content.
+     * Creates a new instance with the given filename and image content, hashed
+     * with {@link PageHashAlgorithm#MD5}.
      *
      * @param filename
      *            the filename
@@ -133,11 +183,88 @@ public class Page
      *            the content
      */
     public Page(String filename, byte[] content)
+    {
+        this(filename, content, PageHashAlgorithm.MD5);
+    }
+
+    /**
+     * Creates a new instance with the given filename and image content, hashed
+     * with the given algorithm.
+     *
+     * @param filename
+     *            the filename
+     * @param content
+     *            the content
+     * @param hashAlgorithm
+     *            the hash algorithm
+     */
+    public Page(String filename, byte[] content, PageHashAlgorithm hashAlgorithm)
+    {
+        this(filename, content, hashAlgorithm, hashAlgorithm.hash(content));
+    }
+
+    /**
+     * Creates a new instance with the given filename, image content and the
+     * hash already computed for that content.
+     *
+     * @param filename
+     *            the filename
+     * @param content
+     *            the content
+     * @param hashAlgorithm
+     *            the algorithm used for the hash
+     * @param hash
+     *            the content hash
+     */
+    public Page(String filename, byte[] content, PageHashAlgorithm hashAlgorithm, String hash)
     {
         this.logger.debug("Creating page: filename=" + filename + " content.size=" + content.length);
         this.filename = filename;
         this.content = content;
-        this.hash = this.createHash(content);
+        this.hashAlgorithm = hashAlgorithm;
+        this.hash = hash;
+    }
+
+    /**
+     * Creates a new instance whose image content is held in a file rather than
+     * in memory.
+     *
+     * @param filename
+     *            the filename
+     * @param contentFile
+     *            the file holding the content
+     * @param hashAlgorithm
+     *            the algorithm used for the hash
+     * @param hash
+     *            the content hash
+     */
+    public Page(String filename, File contentFile, PageHashAlgorithm hashAlgorithm, String hash)
+    {
+        this.logger.debug("Creating page: filename=" + filename + " content.file=" + contentFile);
+        this.filename = filename;
+        this.contentFile = contentFile;
+        this.hashAlgorithm = hashAlgorithm;
+        this.hash = hash;
+    }
+
+    /**
+     * Creates a page for the same content stored under a new filename, such as
+     * when the comic is written to a new archive. The hash is carried over
+     * and the content is read from the new archive when it is needed.
+     *
+     * @param filename
+     *            the new filename
+     * @return the page
+     */
+    public Page copyAs(String filename)
+    {
+        Page result = new Page();
+
+        result.filename = filename;
+        result.hashAlgorithm = this.hashAlgorithm;
+        result.hash = this.hash;
+
+        return result;
     }
 
     @Override
@@ -177,6 +304,23 @@ public class Page
      */
     public byte[] getContent()
     {
+        if ((this.content == null) && (this.contentFile != null))
+        {
+            byte[] result = (this.contentFileCache != null) ? this.contentFileCache.get() : null;
+            if (result != null) return result;
+
+            this.logger.debug("Reading page content from file: " + this.contentFile);
+            try
+            {
+                result = FileUtils.readFileToByteArray(this.contentFile);
+                this.contentFileCache = new SoftReference<>(result);
+                return result;
+            }
+            catch (IOException error)
+            {
+                this.logger.warn("failed to read page content: " + this.contentFile, error);
+            }
+        }
         if (this.content == null)
         {
             this.logger.debug("Loading page image: filename=" + this.filename);
@@ -196,6 +340,54 @@ public class Page
         return this.content;
     }
 
+    /**
+     * Returns a stream over the page's content. Spilled content is streamed
+     * from its file. When the content has not been loaded, the archive is
+     * asked for a buffer, which lets a memory-mapped archive hand out the
+     * entry without copying it.
+     *
+     * @return the content stream
+     */
+    private InputStream getContentStream()
+    {
+        if ((this.content == null) && (this.contentFile != null))
+        {
+            try
+            {
+                return new BufferedInputStream(new FileInputStream(this.contentFile));
+            }
+            catch (IOException error)
+            {
+                this.logger.warn("failed to read page content: " + this.contentFile, error);
+            }
+        }
+        if (!this.hasContent() && (this.comic != null) && (this.comic.archiveType != null))
+        {
+            try
+            {
+                ByteBuffer buffer = this.comic.archiveType.getArchiveAdaptor().loadSingleFileBuffer(this.comic,
+                                                                                                     this.filename);
+                if (buffer != null) return new ByteBufferInputStream(buffer);
+            }
+            catch (ArchiveAdaptorException error)
+            {
+                this.logger.warn("failed to load entry: " + this.filename + " comic=" + this.comic.getFilename(),
+                                 error);
+            }
+        }
+        return new ByteArrayInputStream(this.getContent());
+    }
+
+    /**
+     * Returns the index describing where the page lives within its archive.
+     *
+     * @return the entry index, or <code>null</code> if none is available
+     */
+    public ArchiveEntryIndex getEntryIndex()
+    {
+        return this.entryIndex;
+    }
+
     /**
      * Returns the filename for the page.
      *
@@ -211,6 +403,16 @@ public class Page
         return this.hash;
     }
 
+    /**
+     * Returns the algorithm used to compute the page's hash.
+     *
+     * @return the algorithm
+     */
+    public PageHashAlgorithm getHashAlgorithm()
+    {
+        return (this.hashAlgorithm != null) ? this.hashAlgorithm : PageHashAlgorithm.MD5;
+    }
+
     /**
      * Returns the original image for the page.
      *
@@ -221,9 +423,9 @@ public class Page
         if (this.icon == null)
         {
             this.logger.debug("Generating image from content");
-            try
+            try (InputStream input = this.getContentStream())
             {
-                this.icon = ImageIO.read(new ByteArrayInputStream(this.getContent()));
+                this.icon = ImageIO.read(input);
             }
             catch (IOException error)
             {
@@ -290,6 +492,16 @@ public class Page
         return result;
     }
 
+    /**
+     * Returns if the page's content is available without reading the archive.
+     *
+     * @return true if the content is loaded
+     */
+    boolean hasContent()
+    {
+        return (this.content != null) || (this.contentFile != null);
+    }
+
     @Override
     public int hashCode()
     {
@@ -322,6 +534,34 @@ public class Page
         this.deleted = deleted;
     }
 
+    /**
+     * Deletes the temporary file holding the page's content, if any. Once the
+     * comic is saved the content is read from its archive when needed.
+     */
+    public void releaseContentFile()
+    {
+        if (this.contentFile == null) return;
+
+        this.logger.debug("Deleting page content file: " + this.contentFile);
+        if (!this.contentFile.delete() && this.contentFile.exists())
+        {
+            this.logger.warn("failed to delete page content file: " + this.contentFile);
+        }
+        this.contentFile = null;
+        this.contentFileCache = null;
+    }
+
+    /**
+     * Sets the index describing where the page lives within its archive.
+     *
+     * @param entryIndex
+     *            the entry index
+     */
+    public void setEntryIndex(ArchiveEntryIndex entryIndex)
+    {
+        this.entryIndex = entryIndex;
+    }
+
     /**
      * Sets a new filename for the page.
      *
@@ -334,27 +574,13 @@ public class Page
         this.filename = filename;
     }
 
-    private String createHash(byte[] bytes)
+    void setComic(Comic comic)
     {
-        this.logger.debug("Generating MD5 hash");
-        String result = "";
-        MessageDigest md;
-        try
-        {
-            md = MessageDigest.getInstance("MD5");
-            md.update(bytes);
-            result = new BigInteger(1, md.digest()).toString(16).toUpperCase();
-        }
-        catch (NoSuchAlgorithmException error)
-        {
-            this.logger.error("Failed to generate hash", error);
-        }
-        this.logger.debug("Returning: " + result);
-        return result;
+        this.comic = comic;
     }
 
-    void setComic(Comic comic)
+    void setContent(byte[] content)
     {
-        this.comic = comic;
+        this.content = content;
     }
 }
@@ -0,0 +1,182 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.model;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.comixed.library.utils.XXHash64;
+
+/**
+ * <code>PageHashAlgorithm</code> identifies the algorithm used to compute the
+ * hash of a {@link Page}'s content.
+ *
+ * Each thread reuses a single {@link Hasher} per algorithm, so a hasher must
+ * be finished before the same thread asks for another.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public enum PageHashAlgorithm
+{
+ /**
+  * MD5, formatted as libraries have always stored it.
+  */
+ MD5
+ {
+     @Override
+     Hasher createHasher()
+     {
+         final MessageDigest digest;
+         try
+         {
+             digest = MessageDigest.getInstance("MD5");
+         }
+         catch (NoSuchAlgorithmException error)
+         {
+             throw new IllegalStateException("MD5 is not available", error);
+         }
+
+         return new Hasher()
+         {
+             @Override
+             public String finish()
+             {
+                 // leading zeroes are dropped to match existing hashes
+                 return Page.formatHash(digest.digest());
+             }
+
+             @Override
+             public void update(byte[] input, int offset, int length)
+             {
+                 digest.update(input, offset, length);
+             }
+         };
+     }
+ },
+
+ /**
+  * The 64-bit xxHash, formatted as 16 hexadecimal digits.
+  */
+ XXHASH64
+ {
+     @Override
+     Hasher createHasher()
+     {
+         final XXHash64 checksum = new XXHash64();
+
+         return new Hasher()
+         {
+             @Override
+             public String finish()
+             {
+                 String result = String.format("%016X", checksum.getValue());
+                 checksum.reset();
+                 return result;
+             }
+
+             @Override
+             public void update(byte[] input, int offset, int length)
+             {
+                 checksum.update(input, offset, length);
+             }
+         };
+     }
+ };
+
+    /**
+     * <code>Hasher</code> accumulates content and produces its hash.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    public interface Hasher
+    {
+        /**
+         * Returns the hash of all content given since the last call, and
+         * resets the hasher.
+         *
+         * @return the hash
+         */
+        String finish();
+
+        /**
+         * Adds content to the hash.
+         *
+         * @param input
+         *            the content
+         * @param offset
+         *            the offset of the content
+         * @param length
+         *            the length of the content
+         */
+        void update(byte[] input, int offset, int length);
+    }
+
+    /**
+     * Returns the algorithm with the given name, or {@link #MD5} if the name
+     * is not recognized.
+     *
+     * @param name
+     *            the name
+     * @return the algorithm
+     */
+    public static PageHashAlgorithm forName(String name)
+    {
+        if (name != null)
+        {
+            for (PageHashAlgorithm algorithm : values())
+            {
+                if (algorithm.name().equalsIgnoreCase(name)) return algorithm;
+            }
+        }
+        return MD5;
+    }
+
+    private final ThreadLocal<Hasher> hashers = ThreadLocal.withInitial(this::createHasher);
+
+    abstract Hasher createHasher();
+
+    /**
+     * Returns this thread's hasher, ready for new content.
+     *
+     * @return the hasher
+     */
+    public Hasher getHasher()
+    {
+        return this.hashers.get();
+    }
+
+    /**
+     * Returns the hash of the given content.
+     *
+     * @param content
+     *            the content
+     * @return the hash
+     */
+    public String hash(byte[] content)
+    {
+        Hasher hasher = this.getHasher();
+
+        hasher.update(content, 0, content.length);
+
+        return hasher.finish();
+    }
+}
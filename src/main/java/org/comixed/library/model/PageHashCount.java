@@ -0,0 +1,61 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * <code>PageHashCount</code> records how many pages share a hash. The counts
+ * are kept up to date as pages are saved and deleted, so finding duplicate
+ * pages is an index lookup rather than a scan of every page.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Entity
+@Table(name = "page_hash_counts",
+       indexes =
+       {@Index(name = "page_hash_counts_count_idx",
+               columnList = "page_count")})
+public class PageHashCount
+{
+    @Id
+    @Column(name = "hash",
+            nullable = false)
+    private String hash;
+
+    @Column(name = "page_count",
+            nullable = false)
+    private int pageCount;
+
+    public String getHash()
+    {
+        return this.hash;
+    }
+
+    public int getPageCount()
+    {
+        return this.pageCount;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>ArchiveTypeDetector</code> identifies the format of a comic archive
+ * from the signature at the start of the file.
+ *
+ * Only a fixed number of bytes are read, and results are remembered for as
+ * long as the file's size and modification time are unchanged.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+public class ArchiveTypeDetector
+{
+    /**
+     * <code>Format</code> lists the archive formats that can be detected.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    public enum Format
+    {
+     ZIP("zip", true),
+     RAR4("x-rar-compressed", true),
+     RAR5("x-rar-compressed", false),
+     SEVEN_ZIP("x-7z-compressed", true);
+
+        private final String type;
+        private final boolean supported;
+
+        private Format(String type, boolean supported)
+        {
+            this.type = type;
+            this.supported = supported;
+        }
+
+        /**
+         * Returns the MIME subtype for the format, as used to register archive
+         * adaptors.
+         *
+         * @return the type
+         */
+        public String getType()
+        {
+            return this.type;
+        }
+
+        /**
+         * Returns if archives in this format can be read.
+         *
+         * @return true if supported
+         */
+        public boolean isSupported()
+        {
+            return this.supported;
+        }
+    }
+
+    private static class CachedFormat
+    {
+        final long size;
+        final long lastModified;
+        final Format format;
+
+        CachedFormat(long size, long lastModified, Format format)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.format = format;
+        }
+    }
+
+    private static final int HEADER_LENGTH = 16;
+    private static final int MAX_CACHED = 4096;
+    private static final byte[] ZIP_SIGNATURE =
+    {'P', 'K', 0x03, 0x04};
+    private static final byte[] EMPTY_ZIP_SIGNATURE =
+    {'P', 'K', 0x05, 0x06};
+    private static final byte[] SPANNED_ZIP_SIGNATURE =
+    {'P', 'K', 0x07, 0x08};
+    private static final byte[] RAR4_SIGNATURE =
+    {'R', 'a', 'r', '!', 0x1A, 0x07, 0x00};
+    private static final byte[] RAR5_SIGNATURE =
+    {'R', 'a', 'r', '!', 0x1A, 0x07, 0x01, 0x00};
+    private static final byte[] SEVEN_ZIP_SIGNATURE =
+    {'7', 'z', (byte )0xBC, (byte )0xAF, 0x27, 0x1C};
+
+    private static boolean startsWith(ByteBuffer header, byte[] signature)
+    {
+        if (header.remaining() < signature.length) return false;
+        for (int index = 0;
+             index < signature.length;
+             index++)
+        {
+            if (header.get(index) != signature[index]) return false;
+        }
+        return true;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Map<String,
+                      CachedFormat> cache = new LinkedHashMap<String,
+                                                              CachedFormat>(16, 0.75f, true)
+                      {
+                          private static final long serialVersionUID = -3190254012366452751L;
+
+                          @Override
+                          protected boolean removeEldestEntry(Map.Entry<String,
+                                                                        CachedFormat> eldest)
+                          {
+                              return this.size() > MAX_CACHED;
+                          }
+                      };
+
+    /**
+     * Returns the format of the given archive.
+     *
+     * @param file
+     *            the archive
+     * @return the format, or <code>null</code> if it is not recognized
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public Format detect(File file) throws IOException
+    {
+        Path path = file.toPath().toAbsolutePath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String key = path.toString();
+
+        synchronized (this.cache)
+        {
+            CachedFormat cached = this.cache.get(key);
+            if ((cached != null) && (cached.size == size) && (cached.lastModified == lastModified))
+            {
+                this.logger.debug("Using cached archive format: " + key + " format=" + cached.format);
+                return cached.format;
+            }
+        }
+
+        Format result = this.detectFormat(this.readHeader(path));
+        this.logger.debug("Detected archive format: " + key + " format=" + result);
+
+        synchronized (this.cache)
+        {
+            this.cache.put(key, new CachedFormat(size, lastModified, result));
+        }
+
+        return result;
+    }
+
+    private Format detectFormat(ByteBuffer header)
+    {
+        if (startsWith(header, ZIP_SIGNATURE) || startsWith(header, EMPTY_ZIP_SIGNATURE)
+            || startsWith(header, SPANNED_ZIP_SIGNATURE))
+            return Format.ZIP;
+        if (startsWith(header, RAR5_SIGNATURE)) return Format.RAR5;
+        if (startsWith(header, RAR4_SIGNATURE)) return Format.RAR4;
+        if (startsWith(header, SEVEN_ZIP_SIGNATURE)) return Format.SEVEN_ZIP;
+        return null;
+    }
+
+    private ByteBuffer readHeader(Path path) throws IOException
+    {
+        ByteBuffer result = ByteBuffer.allocate(HEADER_LENGTH);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            while (result.hasRemaining())
+            {
+                if (channel.read(result) == -1) break;
+            }
+        }
+        result.flip();
+
+        return result;
+    }
+}
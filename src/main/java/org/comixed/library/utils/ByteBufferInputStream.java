@@ -0,0 +1,93 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <code>ByteBufferInputStream</code> reads the remaining content of a
+ * {@link ByteBuffer} without copying it first.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class ByteBufferInputStream extends InputStream
+{
+    private final ByteBuffer buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer)
+    {
+        super();
+        this.buffer = buffer.duplicate();
+        this.buffer.mark();
+    }
+
+    @Override
+    public int available()
+    {
+        return this.buffer.remaining();
+    }
+
+    @Override
+    public synchronized void mark(int readlimit)
+    {
+        this.buffer.mark();
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public int read()
+    {
+        return this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length)
+    {
+        if (length == 0) return 0;
+        if (!this.buffer.hasRemaining()) return -1;
+
+        int count = Math.min(length, this.buffer.remaining());
+        this.buffer.get(bytes, offset, count);
+
+        return count;
+    }
+
+    @Override
+    public synchronized void reset()
+    {
+        this.buffer.reset();
+    }
+
+    @Override
+    public long skip(long count)
+    {
+        int skipped = (int )Math.max(0L, Math.min(count, this.buffer.remaining()));
+        this.buffer.position(this.buffer.position() + skipped);
+
+        return skipped;
+    }
+}
@@ -19,12 +19,16 @@
 
 package org.comixed.library.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.io.FilenameUtils;
 import org.apache.tika.Tika;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.mime.MediaType;
+import org.apache.tika.mime.MimeTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +37,10 @@ import org.springframework.stereotype.Component;
 /**
  * <code>FileTypeIdentifier</code> identifies the mime type for a file or file
  * entry.
+ *
+ * The common page and metadata formats are recognized from their first few
+ * bytes. Anything else is passed to Tika, which is only shown as many bytes
+ * as its magic patterns can match against.
  * 
  * @author Darryl L. Pierce
  *
@@ -40,6 +48,37 @@ import org.springframework.stereotype.Component;
 @Component
 public class FileTypeIdentifier
 {
+    private static final int SIGNATURE_LENGTH = 16;
+    private static final int DETECTION_LENGTH = MimeTypes.getDefaultMimeTypes().getMinLength();
+    private static final byte[] JPEG_SIGNATURE =
+    {(byte )0xFF, (byte )0xD8, (byte )0xFF};
+    private static final byte[] PNG_SIGNATURE =
+    {(byte )0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF87_SIGNATURE =
+    {'G', 'I', 'F', '8', '7', 'a'};
+    private static final byte[] GIF89_SIGNATURE =
+    {'G', 'I', 'F', '8', '9', 'a'};
+    private static final byte[] RIFF_SIGNATURE =
+    {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP_SIGNATURE =
+    {'W', 'E', 'B', 'P'};
+    private static final byte[] UTF8_BOM =
+    {(byte )0xEF, (byte )0xBB, (byte )0xBF};
+    private static final byte[] XML_SIGNATURE =
+    {'<', '?', 'x', 'm', 'l'};
+
+    private static boolean startsWith(byte[] header, int length, int offset, byte[] signature)
+    {
+        if ((offset + signature.length) > length) return false;
+        for (int index = 0;
+             index < signature.length;
+             index++)
+        {
+            if (header[offset + index] != signature[index]) return false;
+        }
+        return true;
+    }
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Autowired
@@ -47,6 +86,75 @@ public class FileTypeIdentifier
     @Autowired
     private Metadata metadata;
 
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    private String detectSignature(byte[] header, int length, String filename)
+    {
+        if (startsWith(header, length, 0, JPEG_SIGNATURE)) return "jpeg";
+        if (startsWith(header, length, 0, PNG_SIGNATURE)) return "png";
+        if (startsWith(header, length, 0, GIF87_SIGNATURE) || startsWith(header, length, 0, GIF89_SIGNATURE))
+            return "gif";
+        if (startsWith(header, length, 0, RIFF_SIGNATURE) && startsWith(header, length, 8, WEBP_SIGNATURE))
+            return "webp";
+
+        int offset = startsWith(header, length, 0, UTF8_BOM) ? UTF8_BOM.length : 0;
+        if (startsWith(header, length, offset, XML_SIGNATURE)) return "xml";
+        // without a prolog, markup is only taken as XML when the name says so
+        if ((filename != null) && "xml".equalsIgnoreCase(FilenameUtils.getExtension(filename)))
+        {
+            while ((offset < length) && Character.isWhitespace(header[offset]))
+            {
+                offset++;
+            }
+            if ((offset < length) && (header[offset] == '<')) return "xml";
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of times Tika was needed to identify content.
+     *
+     * @return the fallback count
+     */
+    public long getFallbackCount()
+    {
+        return this.fallbackCount.get();
+    }
+
+    /**
+     * Returns the number of times content was identified from its signature.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    private int readHeader(InputStream input, byte[] header) throws IOException
+    {
+        int length = 0;
+
+        input.mark(header.length);
+        try
+        {
+            while (length < header.length)
+            {
+                int count = input.read(header, length, header.length - length);
+                if (count == -1) break;
+                length += count;
+            }
+        }
+        finally
+        {
+            input.reset();
+        }
+
+        return length;
+    }
+
     /**
      * Returns the MIME type for the supplied input stream.
      * 
@@ -56,15 +164,53 @@ public class FileTypeIdentifier
      * @return the MIME type
      */
     public String typeFor(InputStream input)
+    {
+        return this.typeFor(input, null);
+    }
+
+    /**
+     * Returns the MIME type for the supplied input stream, using the filename
+     * as a hint when the content alone does not decide it.
+     * 
+     * @param input
+     *            the input stream, which must support
+     *            {@link InputStream#mark(int)} and {@link InputStream#reset()}
+     * @param filename
+     *            the filename, or <code>null</code> if not known
+     * @return the MIME type
+     */
+    public String typeFor(InputStream input, String filename)
     {
         logger.debug("Attempting to detect mime type for stream");
+
+        try
+        {
+            byte[] header = new byte[SIGNATURE_LENGTH];
+            String result = this.detectSignature(header, this.readHeader(input, header), filename);
+
+            if (result != null)
+            {
+                this.hitCount.incrementAndGet();
+                logger.debug("result=" + result);
+                return result;
+            }
+        }
+        catch (IOException error)
+        {
+            logger.error("Error reading signature from stream", error);
+            return null;
+        }
+
+        this.fallbackCount.incrementAndGet();
+        logger.debug("Falling back to Tika: hits=" + this.hitCount.get() + " fallbacks=" + this.fallbackCount.get());
+
         MediaType result = null;
 
         try
         {
-            input.mark(Integer.MAX_VALUE);
-            result = tika.getDetector().detect(input, metadata);
-            input.reset();
+            byte[] prefix = new byte[DETECTION_LENGTH];
+            int length = this.readHeader(input, prefix);
+            result = tika.getDetector().detect(new ByteArrayInputStream(prefix, 0, length), metadata);
         }
         catch (IOException error)
         {
@@ -0,0 +1,194 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * <code>MappedSeekableByteChannel</code> provides a read-only
+ * {@link SeekableByteChannel} over a memory-mapped file, so that reads are
+ * served from the mapping rather than through a system call each.
+ *
+ * Files larger than 2 GB cannot be mapped as a single buffer and are
+ * rejected.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class MappedSeekableByteChannel implements
+                                       SeekableByteChannel
+{
+    private final ByteBuffer mapping;
+    private long position = 0L;
+    private boolean open = true;
+
+    /**
+     * Maps the given file.
+     *
+     * @param file
+     *            the file
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    public MappedSeekableByteChannel(File file) throws IOException
+    {
+        super();
+        try (RandomAccessFile input = new RandomAccessFile(file, "r"); FileChannel channel = input.getChannel())
+        {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("File too large to map: " + file);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+            this.mapping = buffer.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Returns if the given file is small enough to be mapped.
+     *
+     * @param file
+     *            the file
+     * @return true if the file can be mapped
+     */
+    public static boolean canMap(File file)
+    {
+        return file.length() <= Integer.MAX_VALUE;
+    }
+
+    private MappedSeekableByteChannel(ByteBuffer mapping)
+    {
+        super();
+        this.mapping = mapping;
+    }
+
+    @Override
+    public void close()
+    {
+        // the mapping itself is released once it is no longer referenced
+        this.open = false;
+    }
+
+    /**
+     * Returns a new channel over the same mapping with its own position. The
+     * channels can be closed independently.
+     *
+     * @return the new channel
+     */
+    public MappedSeekableByteChannel duplicate()
+    {
+        return new MappedSeekableByteChannel(this.mapping);
+    }
+
+    private void ensureOpen() throws ClosedChannelException
+    {
+        if (!this.open) throw new ClosedChannelException();
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return this.open;
+    }
+
+    @Override
+    public long position() throws IOException
+    {
+        this.ensureOpen();
+        return this.position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException
+    {
+        this.ensureOpen();
+        if (newPosition < 0) throw new IllegalArgumentException("Negative position: " + newPosition);
+
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public int read(ByteBuffer destination) throws IOException
+    {
+        this.ensureOpen();
+        if (this.position >= this.mapping.capacity()) return -1;
+
+        int length = (int )Math.min(destination.remaining(), this.mapping.capacity() - this.position);
+        ByteBuffer source = this.mapping.duplicate();
+        source.position((int )this.position);
+        source.limit((int )this.position + length);
+        destination.put(source);
+        this.position += length;
+
+        return length;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+        this.ensureOpen();
+        return this.mapping.capacity();
+    }
+
+    /**
+     * Returns a read-only view of part of the mapping. No content is copied.
+     *
+     * @param offset
+     *            the offset within the file
+     * @param length
+     *            the number of bytes
+     * @return the slice
+     * @throws IOException
+     *             if the range lies outside of the file
+     */
+    public ByteBuffer slice(long offset, int length) throws IOException
+    {
+        this.ensureOpen();
+        if ((offset < 0) || (length < 0) || ((offset + length) > this.mapping.capacity()))
+        {
+            throw new IOException("Range outside of mapping: offset=" + offset + " length=" + length);
+        }
+
+        ByteBuffer result = this.mapping.duplicate();
+        result.position((int )offset);
+        result.limit((int )offset + length);
+
+        return result.slice();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size)
+    {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(ByteBuffer source)
+    {
+        throw new NonWritableChannelException();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <code>SpillableOutputStream</code> collects written content in memory until
+ * it grows past a threshold, at which point the content is moved to a
+ * temporary file and all further writes go there.
+ *
+ * The temporary file is deleted by {@link #discard()}, or otherwise by
+ * whoever takes it from {@link #getFile()}; it is only deleted on exit as a
+ * last resort.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class SpillableOutputStream extends OutputStream
+{
+    private final long threshold;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private File file;
+    private OutputStream output;
+    private long count = 0L;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param threshold
+     *            the number of bytes to hold in memory before spilling to disk
+     */
+    public SpillableOutputStream(long threshold)
+    {
+        super();
+        this.threshold = threshold;
+        this.output = this.memory;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.output.close();
+    }
+
+    /**
+     * Closes the stream and removes any temporary file.
+     */
+    public void discard()
+    {
+        try
+        {
+            this.output.close();
+        }
+        catch (IOException error)
+        {
+            // nothing to do, the content is being thrown away
+        }
+        if (this.file != null)
+        {
+            this.file.delete();
+        }
+        this.memory = null;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        this.output.flush();
+    }
+
+    /**
+     * Returns the number of bytes written.
+     *
+     * @return the byte count
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * Returns the temporary file holding the content.
+     *
+     * @return the file, or <code>null</code> if the content is in memory
+     */
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * Returns if the content is held in memory.
+     *
+     * @return true if the content was not spilled to disk
+     */
+    public boolean isInMemory()
+    {
+        return this.file == null;
+    }
+
+    private void spillIfNeeded(int length) throws IOException
+    {
+        if ((this.file == null) && ((this.count + length) > this.threshold))
+        {
+            this.file = File.createTempFile("comixed-entry", ".tmp");
+            this.file.deleteOnExit();
+            this.output = new BufferedOutputStream(new FileOutputStream(this.file));
+            this.memory.writeTo(this.output);
+            this.memory = null;
+        }
+    }
+
+    /**
+     * Returns the content when it is held in memory.
+     *
+     * @return the content
+     * @throws IllegalStateException
+     *             if the content was spilled to disk
+     */
+    public byte[] toByteArray()
+    {
+        if (this.file != null) throw new IllegalStateException("Content was spilled to " + this.file);
+
+        return this.memory.toByteArray();
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException
+    {
+        this.spillIfNeeded(length);
+        this.output.write(buffer, offset, length);
+        this.count += length;
+    }
+
+    @Override
+    public void write(int value) throws IOException
+    {
+        this.spillIfNeeded(1);
+        this.output.write(value);
+        this.count++;
+    }
+}
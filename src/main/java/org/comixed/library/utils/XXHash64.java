@@ -0,0 +1,203 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import java.util.zip.Checksum;
+
+/**
+ * <code>XXHash64</code> computes the 64-bit xxHash of a stream of bytes. It is
+ * a fast, non-cryptographic hash suitable for identifying duplicate content.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class XXHash64 implements
+                      Checksum
+{
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE_LENGTH = 32;
+
+    private static long getInt(byte[] buffer, int offset)
+    {
+        return (buffer[offset] & 0xFFL) | ((buffer[offset + 1] & 0xFFL) << 8) | ((buffer[offset + 2] & 0xFFL) << 16)
+               | ((buffer[offset + 3] & 0xFFL) << 24);
+    }
+
+    private static long getLong(byte[] buffer, int offset)
+    {
+        return getInt(buffer, offset) | (getInt(buffer, offset + 4) << 32);
+    }
+
+    private static long mergeRound(long accumulator, long value)
+    {
+        accumulator ^= round(0L, value);
+        return (accumulator * PRIME64_1) + PRIME64_4;
+    }
+
+    private static long round(long accumulator, long input)
+    {
+        accumulator += input * PRIME64_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME64_1;
+    }
+
+    private final long seed;
+    private final byte[] buffer = new byte[STRIPE_LENGTH];
+    private int bufferSize;
+    private long totalLength;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    /**
+     * Creates a new instance with a seed of zero.
+     */
+    public XXHash64()
+    {
+        this(0L);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param seed
+     *            the seed
+     */
+    public XXHash64(long seed)
+    {
+        super();
+        this.seed = seed;
+        this.reset();
+    }
+
+    @Override
+    public long getValue()
+    {
+        long result;
+
+        if (this.totalLength >= STRIPE_LENGTH)
+        {
+            result = Long.rotateLeft(this.v1, 1) + Long.rotateLeft(this.v2, 7) + Long.rotateLeft(this.v3, 12)
+                     + Long.rotateLeft(this.v4, 18);
+            result = mergeRound(result, this.v1);
+            result = mergeRound(result, this.v2);
+            result = mergeRound(result, this.v3);
+            result = mergeRound(result, this.v4);
+        }
+        else
+        {
+            result = this.seed + PRIME64_5;
+        }
+
+        result += this.totalLength;
+
+        int offset = 0;
+        while ((offset + 8) <= this.bufferSize)
+        {
+            result ^= round(0L, getLong(this.buffer, offset));
+            result = (Long.rotateLeft(result, 27) * PRIME64_1) + PRIME64_4;
+            offset += 8;
+        }
+        if ((offset + 4) <= this.bufferSize)
+        {
+            result ^= getInt(this.buffer, offset) * PRIME64_1;
+            result = (Long.rotateLeft(result, 23) * PRIME64_2) + PRIME64_3;
+            offset += 4;
+        }
+        while (offset < this.bufferSize)
+        {
+            result ^= (this.buffer[offset] & 0xFFL) * PRIME64_5;
+            result = Long.rotateLeft(result, 11) * PRIME64_1;
+            offset++;
+        }
+
+        result ^= result >>> 33;
+        result *= PRIME64_2;
+        result ^= result >>> 29;
+        result *= PRIME64_3;
+        result ^= result >>> 32;
+
+        return result;
+    }
+
+    private void processStripe(byte[] input, int offset)
+    {
+        this.v1 = round(this.v1, getLong(input, offset));
+        this.v2 = round(this.v2, getLong(input, offset + 8));
+        this.v3 = round(this.v3, getLong(input, offset + 16));
+        this.v4 = round(this.v4, getLong(input, offset + 24));
+    }
+
+    @Override
+    public void reset()
+    {
+        this.v1 = this.seed + PRIME64_1 + PRIME64_2;
+        this.v2 = this.seed + PRIME64_2;
+        this.v3 = this.seed;
+        this.v4 = this.seed - PRIME64_1;
+        this.bufferSize = 0;
+        this.totalLength = 0L;
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int length)
+    {
+        this.totalLength += length;
+
+        if ((this.bufferSize + length) < STRIPE_LENGTH)
+        {
+            System.arraycopy(input, offset, this.buffer, this.bufferSize, length);
+            this.bufferSize += length;
+            return;
+        }
+
+        if (this.bufferSize > 0)
+        {
+            int fill = STRIPE_LENGTH - this.bufferSize;
+            System.arraycopy(input, offset, this.buffer, this.bufferSize, fill);
+            this.processStripe(this.buffer, 0);
+            offset += fill;
+            length -= fill;
+            this.bufferSize = 0;
+        }
+
+        while (length >= STRIPE_LENGTH)
+        {
+            this.processStripe(input, offset);
+            offset += STRIPE_LENGTH;
+            length -= STRIPE_LENGTH;
+        }
+
+        System.arraycopy(input, offset, this.buffer, 0, length);
+        this.bufferSize = length;
+    }
+
+    @Override
+    public void update(int value)
+    {
+        this.update(new byte[]
+        {(byte )value}, 0, 1);
+    }
+}
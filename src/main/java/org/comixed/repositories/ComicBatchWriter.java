@@ -0,0 +1,284 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.comixed.library.model.Comic;
+import org.comixed.library.model.ComicReloadScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * <code>ComicBatchWriter</code> saves comics to the database in batches, with
+ * each batch written in a single transaction so that Hibernate can send the
+ * inserts to the database as JDBC batches.
+ *
+ * Comics given to {@link #add(Comic)} are held until either the batch is full
+ * or the oldest of them has waited for the flush interval. The caller is given
+ * a future which completes once the comic's batch has been committed.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "comic.batch-writer",
+                         ignoreUnknownFields = false)
+public class ComicBatchWriter implements
+                              InitializingBean,
+                              DisposableBean
+{
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ComicReloadScheduler comicReloadScheduler;
+
+    private int batchSize = 50;
+    private long flushInterval = 1000L;
+    private List<Comic> pending = new ArrayList<>();
+    private List<CompletableFuture<Comic>> saved = new ArrayList<>();
+    private long oldestPending = 0L;
+    private ScheduledExecutorService timer;
+
+    /**
+     * Adds a comic to be saved with the next batch.
+     *
+     * @param comic
+     *            the comic
+     * @return completes with the comic once it has been saved
+     */
+    public CompletableFuture<Comic> add(Comic comic)
+    {
+        CompletableFuture<Comic> result = new CompletableFuture<>();
+        boolean full;
+
+        synchronized (this)
+        {
+            if (this.pending.isEmpty())
+            {
+                this.oldestPending = System.currentTimeMillis();
+            }
+            this.pending.add(comic);
+            this.saved.add(result);
+            full = this.pending.size() >= this.batchSize;
+        }
+
+        if (full)
+        {
+            this.flush();
+        }
+
+        return result;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread result = new Thread(runnable, "ComixEd-BatchWriter");
+            result.setDaemon(true);
+            return result;
+        });
+        this.timer.scheduleWithFixedDelay(this::flushIfExpired, this.flushInterval, this.flushInterval,
+                                          TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception
+    {
+        this.timer.shutdownNow();
+        this.flush();
+    }
+
+    /**
+     * Saves all pending comics. If the batch cannot be saved then the future
+     * for each of its comics completes exceptionally, failing the tasks which
+     * added them.
+     */
+    public void flush()
+    {
+        List<Comic> batch;
+        List<CompletableFuture<Comic>> futures;
+
+        synchronized (this)
+        {
+            if (this.pending.isEmpty()) return;
+            batch = this.pending;
+            futures = this.saved;
+            this.pending = new ArrayList<>();
+            this.saved = new ArrayList<>();
+        }
+
+        try
+        {
+            this.save(batch);
+            for (int index = 0;
+                 index < batch.size();
+                 index++)
+            {
+                futures.get(index).complete(batch.get(index));
+            }
+        }
+        catch (RuntimeException error)
+        {
+            this.logger.error("Failed to save batch of " + batch.size() + " comics, failing the tasks which added them",
+                              error);
+            for (CompletableFuture<Comic> future : futures)
+            {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    private void flushIfExpired()
+    {
+        boolean expired;
+
+        synchronized (this)
+        {
+            expired = !this.pending.isEmpty()
+                      && ((System.currentTimeMillis() - this.oldestPending) >= this.flushInterval);
+        }
+
+        if (expired)
+        {
+            this.logger.debug("Flushing comics after waiting " + this.flushInterval + "ms");
+            this.flush();
+        }
+    }
+
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    public long getFlushInterval()
+    {
+        return this.flushInterval;
+    }
+
+    /**
+     * Returns if a comic with the given filename is waiting to be saved.
+     *
+     * @param filename
+     *            the filename
+     * @return true if pending
+     */
+    public synchronized boolean isPending(String filename)
+    {
+        for (Comic comic : this.pending)
+        {
+            if (comic.getFilename().equals(filename)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Saves the given comics immediately in a single transaction, flushing to
+     * the database after every batch.
+     *
+     * @param comics
+     *            the comics
+     */
+    public void save(Collection<Comic> comics)
+    {
+        if (comics.isEmpty()) return;
+
+        this.logger.debug("Saving batch of comics: count=" + comics.size());
+        long started = System.currentTimeMillis();
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        List<Long> added = new ArrayList<>();
+        List<Long> updated = new ArrayList<>();
+
+        try
+        {
+            transaction.execute(status ->
+            {
+                int count = 0;
+                for (Comic comic : comics)
+                {
+                    if (comic.getId() == null)
+                    {
+                        this.entityManager.persist(comic);
+                        added.add(comic.getId());
+                    }
+                    else
+                    {
+                        this.entityManager.merge(comic);
+                        updated.add(comic.getId());
+                    }
+                    if ((++count % this.batchSize) == 0)
+                    {
+                        this.entityManager.flush();
+                        this.entityManager.clear();
+                    }
+                }
+                return null;
+            });
+        }
+        finally
+        {
+            // the content of spilled pages is read from the archives from now on
+            for (Comic comic : comics)
+            {
+                comic.releaseContentFiles();
+            }
+        }
+
+        this.logger.debug("Saved " + comics.size() + " comics in " + (System.currentTimeMillis() - started) + "ms");
+        this.comicReloadScheduler.comicsAdded(added);
+        this.comicReloadScheduler.comicsUpdated(updated);
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    public void setFlushInterval(long flushInterval)
+    {
+        this.flushInterval = flushInterval;
+    }
+}
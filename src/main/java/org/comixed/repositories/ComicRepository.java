@@ -19,14 +19,21 @@
 
 package org.comixed.repositories;
 
+import java.util.List;
+
 import org.comixed.library.model.Comic;
-import org.springframework.data.repository.CrudRepository;
+import org.comixed.library.model.ComicSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ComicRepository extends
-                                 CrudRepository<Comic,
-                                                Long>
+                                 PagingAndSortingRepository<Comic,
+                                                            Long>
 {
     /**
      * Finds a comic based on filename.
@@ -36,4 +43,57 @@ public interface ComicRepository extends
      * @return the comic
      */
     Comic findByFilename(String filename);
+
+    /**
+     * Counts the comics with a lower id, which is the row of the comic with
+     * the given id when comics are ordered by id.
+     *
+     * @param id
+     *            the comic id
+     * @return the count
+     */
+    long countByIdLessThan(Long id);
+
+    /**
+     * Returns a page of comic summaries, selecting only the scalar columns
+     * shown in the library views and counting the pages with a correlated
+     * subquery rather than loading them.
+     *
+     * @param pageable
+     *            the page to return
+     * @return the summaries
+     */
+    @Query(value = "SELECT new org.comixed.library.model.ComicSummary(c.id, c.filename, c.archiveType, c.publisher, c.series, c.volume, c.issueNumber, c.coverDate, c.dateAdded, c.lastReadDate, c.description, c.summary, (SELECT COUNT(p) FROM Page p WHERE p.comic = c)) FROM Comic c",
+           countQuery = "SELECT COUNT(c) FROM Comic c")
+    Page<ComicSummary> findSummaries(Pageable pageable);
+
+    /**
+     * Returns the locations for a single comic without loading the comic.
+     *
+     * @param id
+     *            the comic id
+     * @return the locations
+     */
+    @Query("SELECT l FROM Comic c JOIN c.locations l WHERE c.id = :id")
+    List<String> findLocations(@Param("id") Long id);
+
+    /**
+     * Returns the story arcs for a single comic without loading the comic.
+     *
+     * @param id
+     *            the comic id
+     * @return the story arcs
+     */
+    @Query("SELECT s FROM Comic c JOIN c.storyArcs s WHERE c.id = :id")
+    List<String> findStoryArcs(@Param("id") Long id);
+
+    /**
+     * Returns the teams for a single comic without loading the comic.
+     *
+     * @param id
+     *            the comic id
+     * @return the teams
+     */
+    @Query("SELECT t FROM Comic c JOIN c.teams t WHERE c.id = :id")
+    List<String> findTeams(@Param("id") Long id);
 }
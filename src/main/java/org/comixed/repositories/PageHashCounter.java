@@ -0,0 +1,293 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.comixed.library.model.Page;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>PageHashCounter</code> keeps the <code>page_hash_counts</code> table
+ * in step with the pages table, so that duplicate pages can be found without
+ * grouping every page by its hash.
+ *
+ * As Hibernate inserts or deletes pages, or changes their hashes, the changes
+ * to each hash's count are collected for the transaction. They are written in
+ * one batch after the last flush and before the commit, so the page inserts
+ * themselves are still batched. On startup the table is filled from the
+ * existing pages if it is empty.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+public class PageHashCounter implements
+                             InitializingBean,
+                             PostInsertEventListener,
+                             PostDeleteEventListener,
+                             PostUpdateEventListener
+{
+    /**
+     * <code>HashCountChanges</code> holds the changes to the hash counts made
+     * in one transaction and writes them before it commits.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    class HashCountChanges implements
+                           BeforeTransactionCompletionProcess,
+                           AfterTransactionCompletionProcess
+    {
+        // sorted, so that transactions update shared hashes in the same order
+        private final Map<String,
+                          Integer> deltas = new TreeMap<>();
+
+        void add(String hash, int delta)
+        {
+            if (hash != null) this.deltas.merge(hash, delta, Integer::sum);
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SessionImplementor session)
+        {
+            PageHashCounter.this.changes.remove(session);
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session)
+        {
+            this.deltas.values().removeIf(delta -> delta == 0);
+            if (this.deltas.isEmpty()) return;
+
+            try
+            {
+                PageHashCounter.this.apply(session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection(),
+                                           this.deltas);
+            }
+            catch (SQLException error)
+            {
+                throw new IllegalStateException("Failed to update page hash counts", error);
+            }
+        }
+    }
+
+    private static final long serialVersionUID = -6154939307447218706L;
+
+    // the SQLSTATE class for integrity constraint violations
+    private static final String CONSTRAINT_VIOLATION = "23";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // the schema is created or updated when the factory is built
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final Map<SessionImplementor,
+                      HashCountChanges> changes = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        // schema updates don't add indexes to tables that already exist
+        this.jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS pages_hash_idx ON pages (hash)");
+
+        Long counted = this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM page_hash_counts", Long.class);
+        if ((counted != null) && (counted == 0L))
+        {
+            int hashes = this.jdbcTemplate.update("INSERT INTO page_hash_counts (hash, page_count) SELECT hash, COUNT(*) FROM pages GROUP BY hash");
+            if (hashes > 0) this.logger.info("Counted existing pages: hashes=" + hashes);
+        }
+
+        EventListenerRegistry registry = this.entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                                                                  .getServiceRegistry()
+                                                                  .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+    }
+
+    /**
+     * Writes the changes to the hash counts. Every count is updated in one
+     * batch; hashes that weren't counted yet are then inserted, and should
+     * another transaction insert the same hash first then the update is
+     * retried.
+     */
+    void apply(Connection connection, Map<String,
+                                          Integer> deltas) throws SQLException
+    {
+        List<String> hashes = new ArrayList<>(deltas.keySet());
+        List<String> missing = new ArrayList<>();
+
+        this.logger.debug("Updating page hash counts: hashes=" + hashes.size());
+        try (PreparedStatement update = connection.prepareStatement("UPDATE page_hash_counts SET page_count = page_count + ? WHERE hash = ?"))
+        {
+            for (String hash : hashes)
+            {
+                update.setInt(1, deltas.get(hash));
+                update.setString(2, hash);
+                update.addBatch();
+            }
+            int[] updated = update.executeBatch();
+            for (int index = 0;
+                 index < hashes.size();
+                 index++)
+            {
+                if ((updated[index] == 0) && (deltas.get(hashes.get(index)) > 0)) missing.add(hashes.get(index));
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO page_hash_counts (hash, page_count) VALUES (?, ?)"))
+            {
+                for (String hash : missing)
+                {
+                    insert.setString(1, hash);
+                    insert.setInt(2, deltas.get(hash));
+                    try
+                    {
+                        insert.executeUpdate();
+                    }
+                    catch (SQLException error)
+                    {
+                        if ((error.getSQLState() == null) || !error.getSQLState().startsWith(CONSTRAINT_VIOLATION)) throw error;
+
+                        // another transaction counted the hash first
+                        update.setInt(1, deltas.get(hash));
+                        update.setString(2, hash);
+                        update.executeUpdate();
+                    }
+                }
+            }
+        }
+
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM page_hash_counts WHERE page_count <= 0 AND hash = ?"))
+        {
+            boolean pending = false;
+            for (Map.Entry<String,
+                           Integer> entry : deltas.entrySet())
+            {
+                if (entry.getValue() < 0)
+                {
+                    delete.setString(1, entry.getKey());
+                    delete.addBatch();
+                    pending = true;
+                }
+            }
+            if (pending) delete.executeBatch();
+        }
+    }
+
+    private HashCountChanges getChanges(EventSource session)
+    {
+        return this.changes.computeIfAbsent(session, key ->
+        {
+            HashCountChanges result = new HashCountChanges();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess )result);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess )result);
+            return result;
+        });
+    }
+
+    private String getHash(EntityPersister persister, Object[] state)
+    {
+        if (state == null) return null;
+
+        String[] names = persister.getPropertyNames();
+        for (int index = 0;
+             index < names.length;
+             index++)
+        {
+            if ("hash".equals(names[index])) return (String )state[index];
+        }
+        return null;
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event)
+    {
+        if (!(event.getEntity() instanceof Page)) return;
+
+        this.getChanges(event.getSession()).add(this.getHash(event.getPersister(), event.getDeletedState()), -1);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event)
+    {
+        if (!(event.getEntity() instanceof Page)) return;
+
+        this.getChanges(event.getSession()).add(this.getHash(event.getPersister(), event.getState()), 1);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event)
+    {
+        if (!(event.getEntity() instanceof Page)) return;
+
+        // a detached page saved without being loaded first has no previous
+        // state to compare against
+        if (event.getOldState() == null) return;
+
+        String previous = this.getHash(event.getPersister(), event.getOldState());
+        String current = this.getHash(event.getPersister(), event.getState());
+        if (Objects.equals(previous, current)) return;
+
+        this.logger.debug("Page hash changed: " + previous + " -> " + current);
+        HashCountChanges changes = this.getChanges(event.getSession());
+        changes.add(previous, -1);
+        changes.add(current, 1);
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister)
+    {
+        return false;
+    }
+}
@@ -22,7 +22,9 @@ package org.comixed.repositories;
 import java.util.List;
 
 import org.comixed.library.model.Page;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -30,6 +32,17 @@ public interface PageRepository extends
                                 CrudRepository<Page,
                                                Long>
 {
+    /**
+     * Returns the filename of the cover, the first page, for a comic without
+     * loading the comic or its pages.
+     *
+     * @param comicId
+     *            the comic id
+     * @return the filename, or null if the comic has no pages
+     */
+    @Query("SELECT p.filename FROM Comic c JOIN c.pages p WHERE c.id = :comicId AND INDEX(p) = 0")
+    String findCoverFilename(@Param("comicId") Long comicId);
+
     /**
      * Returns the number of duplicate pages in the repository.
      *
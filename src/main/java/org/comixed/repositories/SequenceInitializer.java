@@ -0,0 +1,82 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.repositories;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>SequenceInitializer</code> moves the id sequences past any ids already
+ * in use. Libraries created before ids came from sequences have rows whose ids
+ * were assigned by identity columns, and a new sequence would otherwise hand
+ * those ids out again.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+public class SequenceInitializer implements
+                                 InitializingBean
+{
+    // must match the allocation size of the entities' sequence generators
+    private static final long ALLOCATION_SIZE = 50L;
+    private static final String[][] SEQUENCES =
+    {
+     {"comics", "comic_id_seq"},
+     {"pages", "page_id_seq"}};
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // the schema is created or updated when the factory is built
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        for (String[] sequence : SEQUENCES)
+        {
+            this.initializeSequence(sequence[0], sequence[1]);
+        }
+    }
+
+    private void initializeSequence(String table, String sequence)
+    {
+        Long maximum = this.jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        Long current = this.jdbcTemplate.queryForObject("SELECT CURRENT_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = ?",
+                                                        Long.class, sequence.toUpperCase());
+
+        if ((maximum != null) && (current != null) && (current <= maximum))
+        {
+            long restart = maximum + ALLOCATION_SIZE + 1L;
+            this.logger.info("Moving sequence " + sequence + " past existing ids: restart=" + restart);
+            this.jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restart);
+        }
+    }
+}
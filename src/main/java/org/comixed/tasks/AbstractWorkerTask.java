@@ -21,6 +21,7 @@ package org.comixed.tasks;
 
 import org.apache.log4j.Logger;
 import org.comixed.adaptors.StatusAdaptor;
+import org.comixed.utils.CancellationToken;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -38,9 +39,65 @@ public abstract class AbstractWorkerTask implements
     @Autowired
     private StatusAdaptor statusAdaptor;
 
+    private Priority priority = Priority.NORMAL;
+    private final CancellationToken cancellationToken = new CancellationToken();
+    private volatile double progress = 0.0;
+
     public AbstractWorkerTask()
     {}
 
+    @Override
+    public CancellationToken getCancellationToken()
+    {
+        return this.cancellationToken;
+    }
+
+    @Override
+    public Priority getPriority()
+    {
+        return this.priority;
+    }
+
+    @Override
+    public double getProgress()
+    {
+        return this.progress;
+    }
+
+    /**
+     * Returns if the task has been cancelled and should stop.
+     *
+     * @return true if cancelled
+     */
+    protected boolean isCancelled()
+    {
+        return this.cancellationToken.isCancelled();
+    }
+
+    /**
+     * Records how much of the task is complete.
+     *
+     * @param completed
+     *            the units of work completed
+     * @param total
+     *            the total units of work
+     */
+    protected void setProgress(long completed, long total)
+    {
+        this.progress = (total > 0) ? Math.min(1.0, (double )completed / total) : 0.0;
+    }
+
+    /**
+     * Sets the priority with which the task is scheduled.
+     *
+     * @param priority
+     *            the priority
+     */
+    public void setPriority(Priority priority)
+    {
+        this.priority = priority;
+    }
+
     protected void showStatusText(String message)
     {
         this.statusAdaptor.updateStatusText(message);
@@ -20,12 +20,17 @@
 package org.comixed.tasks;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.comixed.library.model.Comic;
 import org.comixed.library.model.ComicFileHandler;
 import org.comixed.library.model.ComicFileHandlerException;
-import org.comixed.library.model.ComicSelectionModel;
+import org.comixed.repositories.ComicBatchWriter;
 import org.comixed.repositories.ComicRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,7 +44,8 @@ import org.springframework.stereotype.Component;
 @Component
 @Scope(value = ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 @ConfigurationProperties(prefix = "comic-file.handlers")
-public class AddComicWorkerTask extends AbstractWorkerTask
+public class AddComicWorkerTask extends AbstractWorkerTask implements
+                                JournaledWorkerTask
 {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -53,9 +59,17 @@ public class AddComicWorkerTask extends AbstractWorkerTask
     private ComicRepository comicRepository;
 
     @Autowired
-    private ComicSelectionModel comicSelectionModel;
+    private ComicBatchWriter comicBatchWriter;
 
     File file;
+    private CompletableFuture<Comic> saved;
+
+    @Override
+    public void setParameters(Map<String,
+                                  String> parameters) throws WorkerTaskException
+    {
+        this.setFile(new File(parameters.get("file")));
+    }
 
     @Override
     public void startTask() throws WorkerTaskException
@@ -63,7 +77,7 @@ public class AddComicWorkerTask extends AbstractWorkerTask
         logger.debug("Adding file to library: " + file);
 
         Comic result = comicRepository.findByFilename(this.file.getAbsolutePath());
-        if (result != null)
+        if ((result != null) || comicBatchWriter.isPending(this.file.getAbsolutePath()))
         {
             logger.debug("Comic already imported: " + file.getAbsolutePath());
             return;
@@ -76,15 +90,51 @@ public class AddComicWorkerTask extends AbstractWorkerTask
             result = new Comic();
             result.setFilename(this.file.getAbsolutePath());
             comicFileHandler.loadComic(result);
-            comicRepository.save(result);
-            comicSelectionModel.reload();
+            this.saved = comicBatchWriter.add(result);
         }
         catch (ComicFileHandlerException error)
         {
+            result.releaseContentFiles();
             throw new WorkerTaskException("Failed to load comic", error);
         }
     }
 
+    @Override
+    public CoalescePolicy getCoalescePolicy()
+    {
+        return CoalescePolicy.DROP_DUPLICATE;
+    }
+
+    @Override
+    public String getIdentityKey()
+    {
+        return "add:" + this.file.getAbsolutePath();
+    }
+
+    @Override
+    public CompletableFuture<?> getPendingWork()
+    {
+        return this.saved;
+    }
+
+    @Override
+    public Map<String,
+               String> getParameters()
+    {
+        Map<String,
+            String> result = new HashMap<>();
+
+        result.put("file", this.file.getAbsolutePath());
+
+        return result;
+    }
+
+    @Override
+    public Set<String> getOrderingKeys()
+    {
+        return Collections.singleton(this.file.getAbsolutePath());
+    }
+
     /**
      * Sets the name of the file to be added.
      * 
@@ -96,4 +146,10 @@ public class AddComicWorkerTask extends AbstractWorkerTask
         logger.debug("Setting filename: " + file.getName());
         this.file = file;
     }
+
+    @Override
+    public String toString()
+    {
+        return "Add comic: " + this.file;
+    }
 }
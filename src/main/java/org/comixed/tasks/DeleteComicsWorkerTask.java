@@ -21,18 +21,24 @@ package org.comixed.tasks;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
+import org.comixed.library.adaptors.ArchiveHandlePool;
 import org.comixed.library.model.Comic;
-import org.comixed.library.model.ComicSelectionModel;
+import org.comixed.library.model.ComicReloadScheduler;
 import org.comixed.repositories.ComicRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 @Component
+@Scope("prototype")
 public class DeleteComicsWorkerTask extends AbstractWorkerTask implements
                                     WorkerTask
 {
@@ -42,11 +48,65 @@ public class DeleteComicsWorkerTask extends AbstractWorkerTask implements
     private ComicRepository repository;
 
     @Autowired
-    private ComicSelectionModel comicSelectionModel;
+    private ComicReloadScheduler comicReloadScheduler;
+
+    @Autowired
+    private ArchiveHandlePool archiveHandlePool;
 
     private List<Comic> comics;
     private boolean deleteFiles;
 
+    @Override
+    public CoalescePolicy getCoalescePolicy()
+    {
+        return CoalescePolicy.MERGE;
+    }
+
+    @Override
+    public String getIdentityKey()
+    {
+        return "delete:" + this.deleteFiles;
+    }
+
+    @Override
+    public Set<String> getOrderingKeys()
+    {
+        Set<String> result = new HashSet<>();
+
+        for (Comic comic : this.comics)
+        {
+            result.add(comic.getFilename());
+        }
+
+        return result;
+    }
+
+    /**
+     * Takes on the comics of another delete task that has the same setting
+     * for deleting files, skipping any comics already included.
+     */
+    @Override
+    public boolean mergeWith(WorkerTask task)
+    {
+        if (!(task instanceof DeleteComicsWorkerTask)) return false;
+
+        DeleteComicsWorkerTask other = (DeleteComicsWorkerTask )task;
+        if (other.deleteFiles != this.deleteFiles) return false;
+
+        Set<String> filenames = this.getOrderingKeys();
+        List<Comic> merged = new ArrayList<>(this.comics);
+        for (Comic comic : other.comics)
+        {
+            if (filenames.add(comic.getFilename()))
+            {
+                merged.add(comic);
+            }
+        }
+        this.comics = merged;
+
+        return true;
+    }
+
     public void setComics(List<Comic> comics)
     {
         this.comics = comics;
@@ -60,8 +120,16 @@ public class DeleteComicsWorkerTask extends AbstractWorkerTask implements
     @Override
     public void startTask() throws WorkerTaskException
     {
+        int deleted = 0;
+        List<Long> ids = new ArrayList<>();
+
         for (Comic comic : this.comics)
         {
+            if (this.isCancelled())
+            {
+                this.logger.debug("Delete cancelled after " + deleted + " comics");
+                break;
+            }
             if (this.deleteFiles)
             {
                 this.logger.debug("Deleting comic file: " + comic.getFilename());
@@ -69,6 +137,7 @@ public class DeleteComicsWorkerTask extends AbstractWorkerTask implements
 
                 try
                 {
+                    this.archiveHandlePool.evict(file);
                     FileUtils.forceDelete(file);
                     this.logger.debug("Removing comic from repository: " + comic);
                 }
@@ -79,8 +148,16 @@ public class DeleteComicsWorkerTask extends AbstractWorkerTask implements
             }
 
             this.repository.delete(comic);
+            ids.add(comic.getId());
+            this.setProgress(++deleted, this.comics.size());
         }
 
-        this.comicSelectionModel.reload();
+        this.comicReloadScheduler.comicsRemoved(ids);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Delete comics: count=" + this.comics.size();
     }
 }
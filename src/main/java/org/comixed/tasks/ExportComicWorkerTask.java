@@ -19,15 +19,18 @@
 
 package org.comixed.tasks;
 
+import java.util.Collections;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.comixed.AppConfiguration;
 import org.comixed.library.adaptors.AbstractArchiveAdaptor;
 import org.comixed.library.adaptors.ArchiveAdaptor;
 import org.comixed.library.adaptors.ArchiveAdaptorException;
+import org.comixed.library.adaptors.CompressionProfile;
 import org.comixed.library.model.Comic;
-import org.comixed.library.model.ComicSelectionModel;
-import org.comixed.repositories.ComicRepository;
+import org.comixed.repositories.ComicBatchWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,19 +45,43 @@ public class ExportComicWorkerTask extends AbstractWorkerTask
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private Comic comic;
     private ArchiveAdaptor archiveAdaptor;
+    private CompressionProfile compressionProfile;
 
     @Autowired
     private MessageSource messageSource;
 
     @Autowired
-    private ComicRepository comicRepository;
-
-    @Autowired
-    private ComicSelectionModel comicSelectionModel;
+    private ComicBatchWriter comicBatchWriter;
 
     @Autowired
     private AppConfiguration configuration;
 
+    private CompletableFuture<Comic> saved;
+
+    @Override
+    public CoalescePolicy getCoalescePolicy()
+    {
+        return CoalescePolicy.DROP_DUPLICATE;
+    }
+
+    @Override
+    public String getIdentityKey()
+    {
+        return "export:" + this.archiveAdaptor.getClass().getName() + ":" + this.comic.getFilename();
+    }
+
+    @Override
+    public CompletableFuture<?> getPendingWork()
+    {
+        return this.saved;
+    }
+
+    @Override
+    public Set<String> getOrderingKeys()
+    {
+        return Collections.singleton(this.comic.getFilename());
+    }
+
     public void setArchiveAdaptor(AbstractArchiveAdaptor archiveAdaptor)
     {
         this.archiveAdaptor = archiveAdaptor;
@@ -65,6 +92,18 @@ public class ExportComicWorkerTask extends AbstractWorkerTask
         this.comic = comic;
     }
 
+    /**
+     * Sets the compression profile for the exported comic. If none is set then
+     * the profile chosen in the preferences is used.
+     *
+     * @param compressionProfile
+     *            the profile
+     */
+    public void setCompressionProfile(CompressionProfile compressionProfile)
+    {
+        this.compressionProfile = compressionProfile;
+    }
+
     @Override
     public void startTask() throws WorkerTaskException
     {
@@ -79,13 +118,23 @@ public class ExportComicWorkerTask extends AbstractWorkerTask
             {
                 rename = Boolean.valueOf(configuration.getOption(AppConfiguration.RENAME_COMIC_PAGES_ON_EXPORT));
             }
-            Comic result = this.archiveAdaptor.saveComic(this.comic, rename);
-            comicRepository.save(result);
-            comicSelectionModel.reload();
+            CompressionProfile profile = this.compressionProfile;
+            if (profile == null)
+            {
+                profile = CompressionProfile.forName(configuration.getOption(AppConfiguration.EXPORT_COMPRESSION_PROFILE));
+            }
+            Comic result = this.archiveAdaptor.saveComic(this.comic, rename, profile);
+            this.saved = comicBatchWriter.add(result);
         }
         catch (ArchiveAdaptorException error)
         {
             throw new WorkerTaskException("Unable to convert comic", error);
         }
     }
+
+    @Override
+    public String toString()
+    {
+        return "Export comic: " + this.comic.getFilename();
+    }
 }
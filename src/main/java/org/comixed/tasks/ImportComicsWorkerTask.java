@@ -0,0 +1,529 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.tasks;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.comixed.library.model.Comic;
+import org.comixed.library.model.ComicFileHandler;
+import org.comixed.library.model.ComicFileHandlerException;
+import org.comixed.library.model.ComicReloadScheduler;
+import org.comixed.repositories.ComicBatchWriter;
+import org.comixed.repositories.ComicRepository;
+import org.comixed.utils.CancellationToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>ImportComicsWorkerTask</code> imports every comic file beneath a
+ * directory using a pipeline of stages connected by bounded queues:
+ *
+ * <ol>
+ * <li>a single thread scans the directory for comic files,</li>
+ * <li>a pool of threads loads each archive, identifying and hashing its
+ * entries, and</li>
+ * <li>a single thread saves the loaded comics in batches through the
+ * {@link ComicBatchWriter}.</li>
+ * </ol>
+ *
+ * A full queue blocks the stage feeding it, so a slow stage holds back the
+ * ones before it rather than letting loaded comics pile up in memory.
+ *
+ * The import runs as a single bulk operation, so the library is reloaded once
+ * when it finishes rather than after every batch. A batch that cannot be saved
+ * does not stop the import, but the task fails once the rest are saved so that
+ * the missing comics are not silently lost.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+@Scope(value = ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+@ConfigurationProperties(prefix = "comic.import")
+public class ImportComicsWorkerTask extends AbstractWorkerTask implements
+                                    JournaledWorkerTask
+{
+    /**
+     * <code>StageStatistics</code> records how many items a stage handled and
+     * for how long it ran.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    public static class StageStatistics
+    {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private volatile long started;
+        private volatile long finished;
+
+        StageStatistics(String name)
+        {
+            this.name = name;
+        }
+
+        void failed(int items)
+        {
+            this.failures.addAndGet(items);
+        }
+
+        public long getCount()
+        {
+            return this.count.get();
+        }
+
+        /**
+         * Returns how long the stage has been running, in milliseconds.
+         *
+         * @return the elapsed time
+         */
+        public long getElapsed()
+        {
+            if (this.started == 0L) return 0L;
+            long end = (this.finished != 0L) ? this.finished : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - this.started);
+        }
+
+        public long getFailures()
+        {
+            return this.failures.get();
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        /**
+         * Returns the number of items handled per second.
+         *
+         * @return the throughput
+         */
+        public double getThroughput()
+        {
+            long elapsed = this.getElapsed();
+            return (elapsed > 0L) ? (this.count.get() * 1000.0) / elapsed : 0.0;
+        }
+
+        void processed(int items)
+        {
+            this.count.addAndGet(items);
+        }
+
+        void start()
+        {
+            this.started = System.nanoTime();
+        }
+
+        void stop()
+        {
+            this.finished = System.nanoTime();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: count=%d failures=%d elapsed=%dms throughput=%.1f/s", this.name,
+                                 this.getCount(), this.getFailures(), this.getElapsed(), this.getThroughput());
+        }
+    }
+
+    private static final long FLUSH_INTERVAL = 1000L;
+
+    // marks the end of the work flowing through a queue
+    private static final File END_OF_FILES = new File("");
+    private static final Comic END_OF_COMICS = new Comic();
+
+    @Autowired
+    private MessageSource messageSource;
+
+    @Autowired
+    private ComicFileHandler comicFileHandler;
+
+    @Autowired
+    private ComicRepository comicRepository;
+
+    @Autowired
+    private ComicBatchWriter comicBatchWriter;
+
+    @Autowired
+    private ComicReloadScheduler comicReloadScheduler;
+
+    private File directory;
+    private int loadThreads = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 64;
+    private int batchSize = 100;
+
+    private final StageStatistics scanStatistics = new StageStatistics("scan");
+    private final StageStatistics loadStatistics = new StageStatistics("load");
+    private final StageStatistics saveStatistics = new StageStatistics("save");
+    private volatile RuntimeException saveFailure;
+
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    public int getLoadThreads()
+    {
+        return this.loadThreads;
+    }
+
+    public int getQueueCapacity()
+    {
+        return this.queueCapacity;
+    }
+
+    /**
+     * Returns the statistics for each stage of the pipeline.
+     *
+     * @return the statistics
+     */
+    public List<StageStatistics> getStatistics()
+    {
+        List<StageStatistics> result = new ArrayList<>();
+
+        result.add(this.scanStatistics);
+        result.add(this.loadStatistics);
+        result.add(this.saveStatistics);
+
+        return result;
+    }
+
+    /**
+     * Hands a file to the loaders, giving up once a stage has failed rather
+     * than waiting forever for a loader to take it.
+     */
+    private void enqueue(File file, BlockingQueue<File> files, List<Future<?>> stages) throws InterruptedException,
+                                                                                         ExecutionException
+    {
+        while (!files.offer(file, FLUSH_INTERVAL, TimeUnit.MILLISECONDS))
+        {
+            for (Future<?> stage : stages)
+            {
+                // throws if the stage failed
+                if (stage.isDone()) stage.get();
+            }
+        }
+    }
+
+    private boolean isComicFile(File file)
+    {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".cbz") || name.endsWith(".cbr") || name.endsWith(".cb7");
+    }
+
+    private void load(BlockingQueue<File> files, BlockingQueue<Comic> comics) throws InterruptedException
+    {
+        // lets the archive adaptors stop between entries once cancelled
+        CancellationToken.setCurrent(this.getCancellationToken());
+        try
+        {
+            File file = files.take();
+            while (file != END_OF_FILES)
+            {
+                if (this.isCancelled())
+                {
+                    // keep draining so the scan stage is never left blocked
+                    file = files.take();
+                    continue;
+                }
+                Comic comic = new Comic();
+                comic.setFilename(file.getAbsolutePath());
+                try
+                {
+                    this.comicFileHandler.loadComic(comic);
+                    this.loadStatistics.processed(1);
+                    comics.put(comic);
+                }
+                catch (ComicFileHandlerException
+                       | RuntimeException error)
+                {
+                    // a bad archive must not stop this loader from draining the queue
+                    logger.error("Failed to load comic: " + file.getAbsolutePath(), error);
+                    comic.releaseContentFiles();
+                    this.loadStatistics.failed(1);
+                }
+                file = files.take();
+            }
+        }
+        finally
+        {
+            CancellationToken.setCurrent(null);
+            comics.put(END_OF_COMICS);
+        }
+    }
+
+    private void save(BlockingQueue<Comic> comics, int producers) throws InterruptedException
+    {
+        List<Comic> batch = new ArrayList<>(this.batchSize);
+        int finished = 0;
+
+        while (finished < producers)
+        {
+            Comic comic = comics.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+            if (comic == null)
+            {
+                // loading has slowed, so save what has arrived so far
+                this.saveBatch(batch);
+            }
+            else if (comic == END_OF_COMICS)
+            {
+                finished++;
+            }
+            else
+            {
+                batch.add(comic);
+                if (batch.size() >= this.batchSize) this.saveBatch(batch);
+            }
+        }
+        this.saveBatch(batch);
+    }
+
+    private void saveBatch(List<Comic> batch)
+    {
+        if (batch.isEmpty()) return;
+
+        logger.debug("Saving batch of comics: count=" + batch.size());
+        try
+        {
+            this.comicBatchWriter.save(batch);
+            this.saveStatistics.processed(batch.size());
+        }
+        catch (RuntimeException error)
+        {
+            logger.error("Failed to save batch of comics", error);
+            this.saveStatistics.failed(batch.size());
+            if (this.saveFailure == null) this.saveFailure = error;
+        }
+        batch.clear();
+        this.setProgress(this.saveStatistics.getCount() + this.saveStatistics.getFailures()
+                         + this.loadStatistics.getFailures(), this.scanStatistics.getCount());
+        this.showStatusText(this.messageSource.getMessage("status.comic.import", new Object[]
+        {this.scanStatistics.getCount(),
+         this.loadStatistics.getCount(),
+         this.saveStatistics.getCount()}, Locale.getDefault()));
+    }
+
+    private void scan(File root, BlockingQueue<File> files, List<Future<?>> stages) throws InterruptedException,
+                                                                                      ExecutionException
+    {
+        logger.debug("Descending into " + root);
+        File[] entries = root.listFiles((FileFilter )pathname -> pathname.isDirectory() || this.isComicFile(pathname));
+        if (entries == null) return;
+
+        for (File file : entries)
+        {
+            if (this.isCancelled())
+            {
+                logger.debug("Import cancelled, stopping scan");
+                return;
+            }
+            if (file.isDirectory())
+            {
+                this.scan(file, files, stages);
+            }
+            else if (this.comicRepository.findByFilename(file.getAbsolutePath()) != null)
+            {
+                logger.debug("Comic already imported: " + file.getAbsolutePath());
+            }
+            else
+            {
+                this.scanStatistics.processed(1);
+                this.enqueue(file, files, stages);
+            }
+        }
+    }
+
+    @Override
+    public CoalescePolicy getCoalescePolicy()
+    {
+        return CoalescePolicy.DROP_DUPLICATE;
+    }
+
+    @Override
+    public String getIdentityKey()
+    {
+        return "import:" + this.directory.getAbsolutePath();
+    }
+
+    @Override
+    public Map<String,
+               String> getParameters()
+    {
+        Map<String,
+            String> result = new HashMap<>();
+
+        result.put("directory", this.directory.getAbsolutePath());
+
+        return result;
+    }
+
+    @Override
+    public Set<String> getOrderingKeys()
+    {
+        return Collections.singleton(this.directory.getAbsolutePath());
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the directory to be imported.
+     *
+     * @param directory
+     *            the directory
+     */
+    public void setDirectory(File directory)
+    {
+        logger.debug("Setting import directory: " + directory);
+        this.directory = directory;
+    }
+
+    public void setLoadThreads(int loadThreads)
+    {
+        this.loadThreads = loadThreads;
+    }
+
+    @Override
+    public void setParameters(Map<String,
+                                  String> parameters) throws WorkerTaskException
+    {
+        File directory = new File(parameters.get("directory"));
+
+        if (!directory.isDirectory()) throw new WorkerTaskException("Import directory no longer exists: " + directory);
+        this.setDirectory(directory);
+    }
+
+    public void setQueueCapacity(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void startTask() throws WorkerTaskException
+    {
+        logger.debug("Importing comics from: " + this.directory);
+
+        int loaders = Math.max(1, this.loadThreads);
+        BlockingQueue<File> files = new ArrayBlockingQueue<>(Math.max(1, this.queueCapacity));
+        BlockingQueue<Comic> comics = new ArrayBlockingQueue<>(Math.max(1, this.queueCapacity));
+        ExecutorService executor = Executors.newFixedThreadPool(loaders + 1);
+
+        try (ComicReloadScheduler.BulkOperation bulkOperation = this.comicReloadScheduler.beginBulkOperation())
+        {
+            List<Future<?>> stages = new ArrayList<>();
+
+            this.loadStatistics.start();
+            for (int index = 0;
+                 index < loaders;
+                 index++)
+            {
+                stages.add(executor.submit(() ->
+                {
+                    this.load(files, comics);
+                    return null;
+                }));
+            }
+            this.saveStatistics.start();
+            stages.add(executor.submit(() ->
+            {
+                this.save(comics, loaders);
+                this.saveStatistics.stop();
+                return null;
+            }));
+
+            this.scanStatistics.start();
+            try
+            {
+                this.scan(this.directory, files, stages);
+            }
+            finally
+            {
+                this.scanStatistics.stop();
+                for (int index = 0;
+                     index < loaders;
+                     index++)
+                {
+                    this.enqueue(END_OF_FILES, files, stages);
+                }
+            }
+
+            for (int index = 0;
+                 index < loaders;
+                 index++)
+            {
+                stages.get(index).get();
+            }
+            this.loadStatistics.stop();
+            stages.get(loaders).get();
+        }
+        catch (InterruptedException error)
+        {
+            Thread.currentThread().interrupt();
+            throw new WorkerTaskException("Import interrupted", error);
+        }
+        catch (Exception error)
+        {
+            throw new WorkerTaskException("Failed to import comics", error);
+        }
+        finally
+        {
+            executor.shutdownNow();
+            for (StageStatistics statistics : this.getStatistics())
+            {
+                logger.info("Import " + statistics);
+            }
+        }
+
+        if (this.saveFailure != null) throw new WorkerTaskException("Failed to save "
+                                                                    + this.saveStatistics.getFailures()
+                                                                    + " imported comics", this.saveFailure);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Import comics: " + this.directory;
+    }
+}
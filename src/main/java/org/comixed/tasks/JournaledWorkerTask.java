@@ -0,0 +1,56 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.tasks;
+
+import java.util.Map;
+
+/**
+ * <code>JournaledWorkerTask</code> defines a {@link WorkerTask} which is
+ * recorded in the {@link WorkerTaskJournal}, so that it can be run again if
+ * the application stops before the task completes.
+ *
+ * Since a replayed task may already have partly run, it must be safe to run
+ * more than once.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public interface JournaledWorkerTask extends
+                                     WorkerTask
+{
+    /**
+     * Returns the parameters needed to recreate the task.
+     *
+     * @return the parameters
+     */
+    Map<String,
+        String> getParameters();
+
+    /**
+     * Recreates the task from parameters returned by {@link #getParameters()}.
+     *
+     * @param parameters
+     *            the parameters
+     * @throws WorkerTaskException
+     *             if the task can no longer be recreated
+     */
+    void setParameters(Map<String,
+                           String> parameters) throws WorkerTaskException;
+}
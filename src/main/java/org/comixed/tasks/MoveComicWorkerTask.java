@@ -21,11 +21,16 @@ package org.comixed.tasks;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.comixed.library.adaptors.ArchiveHandlePool;
 import org.comixed.library.model.Comic;
-import org.comixed.library.model.ComicSelectionModel;
+import org.comixed.library.model.ComicReloadScheduler;
 import org.comixed.repositories.ComicRepository;
 import org.comixed.utils.ComicFileUtils;
 import org.slf4j.Logger;
@@ -44,7 +49,8 @@ import org.springframework.stereotype.Component;
  */
 @Component
 @Scope("prototype")
-public class MoveComicWorkerTask extends AbstractWorkerTask
+public class MoveComicWorkerTask extends AbstractWorkerTask implements
+                                 JournaledWorkerTask
 {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -52,7 +58,10 @@ public class MoveComicWorkerTask extends AbstractWorkerTask
     private ComicRepository comicRepository;
 
     @Autowired
-    private ComicSelectionModel comicSelectionModel;
+    private ComicReloadScheduler comicReloadScheduler;
+
+    @Autowired
+    private ArchiveHandlePool archiveHandlePool;
 
     private Comic comic;
     private String destination;
@@ -82,6 +91,37 @@ public class MoveComicWorkerTask extends AbstractWorkerTask
         return result.toString();
     }
 
+    @Override
+    public CoalescePolicy getCoalescePolicy()
+    {
+        return CoalescePolicy.KEEP_LATEST;
+    }
+
+    @Override
+    public String getIdentityKey()
+    {
+        return "move:" + this.comic.getFilename();
+    }
+
+    @Override
+    public Map<String,
+               String> getParameters()
+    {
+        Map<String,
+            String> result = new HashMap<>();
+
+        result.put("comic", String.valueOf(this.comic.getId()));
+        result.put("destination", this.destination);
+
+        return result;
+    }
+
+    @Override
+    public Set<String> getOrderingKeys()
+    {
+        return Collections.singleton(this.comic.getFilename());
+    }
+
     public void setComic(Comic comic)
     {
         this.comic = comic;
@@ -92,21 +132,34 @@ public class MoveComicWorkerTask extends AbstractWorkerTask
         this.destination = destination;
     }
 
+    @Override
+    public void setParameters(Map<String,
+                                  String> parameters) throws WorkerTaskException
+    {
+        Comic comic = this.comicRepository.findOne(Long.valueOf(parameters.get("comic")));
+
+        if (comic == null) throw new WorkerTaskException("Comic no longer exists: id=" + parameters.get("comic"));
+        this.setComic(comic);
+        this.setDestination(parameters.get("destination"));
+    }
+
     @Override
     public void startTask() throws WorkerTaskException
     {
         File sourceFile = new File(this.comic.getFilename());
         File destFile = new File(this.getRelativeDestination(), getRelativeComicFilename());
         String defaultExtension = FilenameUtils.getExtension(comic.getFilename());
-        destFile = new File(ComicFileUtils.findAvailableFilename(destFile.getAbsolutePath(), 0, defaultExtension));
 
-        // if the source and target are the same, then skip the file
-        if (destFile.equals(sourceFile))
+        // if the comic is already in place, such as when a move is replayed,
+        // then skip the file
+        if (new File(destFile.getAbsolutePath() + "." + defaultExtension).getAbsoluteFile().equals(sourceFile.getAbsoluteFile()))
         {
-            this.logger.debug("Source and target are the same: " + destFile.getAbsolutePath());
+            this.logger.debug("Source and target are the same: " + sourceFile.getAbsolutePath());
             return;
         }
 
+        destFile = new File(ComicFileUtils.findAvailableFilename(destFile.getAbsolutePath(), 0, defaultExtension));
+
         // create the directory if it doesn't exist
         if (!destFile.getParentFile().exists())
         {
@@ -117,12 +170,13 @@ public class MoveComicWorkerTask extends AbstractWorkerTask
         {
             this.logger.debug("Moving comic: " + this.comic.getFilename() + " -> " + this.destination);
 
+            this.archiveHandlePool.evict(sourceFile);
             FileUtils.moveFile(sourceFile, destFile);
 
             this.logger.debug("Updating comic in database");
             this.comic.setFilename(destFile.getAbsolutePath());
             this.comicRepository.save(this.comic);
-            this.comicSelectionModel.reload();
+            this.comicReloadScheduler.comicsUpdated(Collections.singleton(this.comic.getId()));
         }
         catch (IOException error)
         {
@@ -140,4 +194,10 @@ public class MoveComicWorkerTask extends AbstractWorkerTask
 
         return result.toString();
     }
+
+    @Override
+    public String toString()
+    {
+        return "Move comic: " + this.comic.getFilename() + " to " + this.destination;
+    }
 }
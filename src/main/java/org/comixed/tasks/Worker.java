@@ -19,16 +19,34 @@
 
 package org.comixed.tasks;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.comixed.adaptors.StatusAdaptor;
+import org.comixed.tasks.WorkerTask.CoalescePolicy;
+import org.comixed.tasks.WorkerTask.Priority;
+import org.comixed.utils.CancellationToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 
 /**
@@ -36,15 +54,43 @@ import org.springframework.stereotype.Component;
  * worker tasks to be completed.
  *
  * When the queue is empty the work worker sits idle, but wakes up and processes
- * tasks as they are added. Tasks are executed in the order in which they are
- * added to the queue.
+ * tasks as they are added. Tasks are handed to a pool of threads, so
+ * independent tasks run in parallel. A task is held back while an earlier task
+ * sharing one of its {@link WorkerTask#getOrderingKeys() ordering keys} is
+ * waiting or running, so tasks touching the same comic or file still complete
+ * in the order they were added.
+ *
+ * Each {@link Priority} has its own lane, and tasks within a lane are started
+ * in the order they were added. Between lanes the worker starts the task with
+ * the earliest deadline, which is the time it was queued plus the aging
+ * interval for each step its priority is below {@link Priority#INTERACTIVE}.
+ * So an interactive task jumps ahead of recently queued bulk work, but a bulk
+ * task that has waited long enough is started ahead of newer interactive
+ * tasks and cannot starve.
+ *
+ * Queued and running tasks can be cancelled through their
+ * {@link CancellationToken}, which is bound to the thread running the task so
+ * that the archive adaptors can stop between entries.
+ *
+ * A task queued while another with the same
+ * {@link WorkerTask#getIdentityKey() identity key} is still waiting is
+ * coalesced with it according to its {@link CoalescePolicy}, and the number of
+ * tasks coalesced this way is kept for display.
+ *
+ * Tasks are recorded in the {@link WorkerTaskJournal} as they are queued and
+ * finished, and any left unfinished by the last run are queued again once the
+ * application has started.
  *
  * @author Darryl. Pierce
  */
 @Component
+@EnableConfigurationProperties
+@ConfigurationProperties(prefix = "comic.worker",
+                         ignoreUnknownFields = false)
 public class Worker implements
                     Runnable,
-                    InitializingBean
+                    InitializingBean,
+                    ApplicationListener<ContextRefreshedEvent>
 {
     public enum State
     {
@@ -53,20 +99,67 @@ public class Worker implements
      STOP,
     }
 
+    /**
+     * <code>QueuedTask</code> holds a task waiting in the queue along with when
+     * it was queued and the priority and ordering keys it reported then.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    static class QueuedTask
+    {
+        final WorkerTask task;
+        final Priority priority;
+        final Set<String> keys;
+        final long queued;
+        final long sequence;
+        String journalId;
+
+        QueuedTask(WorkerTask task, long queued, long sequence, String journalId)
+        {
+            this.task = task;
+            this.priority = task.getPriority();
+            this.keys = new HashSet<>(task.getOrderingKeys());
+            this.queued = queued;
+            this.sequence = sequence;
+            this.journalId = journalId;
+        }
+    }
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());;
 
     @Autowired
     private StatusAdaptor statusAdaptor;
 
-    BlockingQueue<WorkerTask> queue = new LinkedBlockingQueue<>();
-    State state = State.IDLE;
+    @Autowired
+    private WorkerTaskJournal taskJournal;
+
+    final Map<Priority,
+              Deque<QueuedTask>> lanes = new EnumMap<>(Priority.class);
+    volatile State state = State.IDLE;
     private Object semaphore = new Object();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long agingInterval = 60000L;
+    private volatile int queued = 0;
+    private long sequence = 0L;
+    private final Set<WorkerTask> running = new LinkedHashSet<>();
+    private final Set<String> activeKeys = new HashSet<>();
+    private boolean replayed = false;
+    private final Map<String,
+                      Deque<QueuedTask>> waitingByKey = new HashMap<>();
+    private final Map<String,
+                      QueuedTask> waitingByIdentity = new HashMap<>();
+    private volatile int coalesced = 0;
 
     public List<WorkerListener> listeners = new ArrayList<>();
 
     public Worker()
     {
         super();
+        for (Priority priority : Priority.values())
+        {
+            this.lanes.put(priority, new ArrayDeque<>());
+        }
     }
 
     /**
@@ -78,16 +171,39 @@ public class Worker implements
     public void addTasksToQueue(WorkerTask task)
     {
         this.logger.debug("Adding task to queue: " + task);
-        try
+
+        synchronized (this.semaphore)
         {
-            this.queue.put(task);
+            if (this.coalesce(task))
+            {
+                this.coalesced++;
+                this.logger.debug("Coalesced task: " + task + " [" + this.coalesced + " coalesced]");
+            }
+            else
+            {
+                QueuedTask entry = new QueuedTask(task, System.currentTimeMillis(), this.sequence++,
+                                                  this.taskJournal.taskQueued(task));
+
+                this.lanes.get(entry.priority).addLast(entry);
+                this.addOrderingKeys(entry, entry.keys);
+                String identity = task.getIdentityKey();
+                if (identity != null)
+                {
+                    this.waitingByIdentity.put(identity, entry);
+                }
+                this.queued++;
+            }
         }
-        catch (InterruptedException error)
+        this.logger.debug("Queue size is now " + this.queued);
+        this.wakeUpWorker();
+    }
+
+    private void addOrderingKeys(QueuedTask entry, Set<String> keys)
+    {
+        for (String key : keys)
         {
-            this.logger.error("Unable to queue task", error);
+            this.waitingByKey.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(entry);
         }
-        this.logger.debug("Queue size is now " + this.queue.size());
-        this.wakeUpWorker();
     }
 
     public void addWorkerListener(WorkerListener listener)
@@ -96,6 +212,118 @@ public class Worker implements
         this.listeners.add(listener);
     }
 
+    /**
+     * Cancels every queued and running task. Queued tasks are removed without
+     * being started.
+     */
+    public void cancelAllTasks()
+    {
+        this.logger.debug("Cancelling all tasks");
+        synchronized (this.semaphore)
+        {
+            for (Deque<QueuedTask> lane : this.lanes.values())
+            {
+                for (QueuedTask entry : lane)
+                {
+                    entry.task.getCancellationToken().cancel();
+                    this.taskJournal.taskFinished(entry.journalId, true);
+                }
+                lane.clear();
+            }
+            this.waitingByKey.clear();
+            this.waitingByIdentity.clear();
+            this.queued = 0;
+            for (WorkerTask task : this.running)
+            {
+                task.getCancellationToken().cancel();
+            }
+            this.semaphore.notifyAll();
+        }
+        this.fireQueueChangedEvent();
+    }
+
+    /**
+     * Cancels a task. If the task is still queued then it is removed without
+     * being started, otherwise it is asked to stop at its next opportunity.
+     *
+     * @param task
+     *            the task
+     * @return true if the task was queued or running
+     */
+    public boolean cancelTask(WorkerTask task)
+    {
+        this.logger.debug("Cancelling task: " + task);
+        boolean dequeued = false;
+
+        synchronized (this.semaphore)
+        {
+            task.getCancellationToken().cancel();
+            if (this.running.contains(task)) return true;
+
+            QueuedTask entry = this.findQueuedTask(task);
+            if (entry != null)
+            {
+                this.removeQueuedTask(entry);
+                this.taskJournal.taskFinished(entry.journalId, true);
+                // tasks waiting on the same keys may now be able to start
+                this.semaphore.notifyAll();
+                dequeued = true;
+            }
+        }
+        if (dequeued)
+        {
+            this.fireQueueChangedEvent();
+        }
+
+        return dequeued;
+    }
+
+    /**
+     * Combines a new task with a waiting task that has the same identity key.
+     * Must be called while holding the semaphore.
+     *
+     * @param task
+     *            the new task
+     * @return true if the new task was absorbed and should not be queued
+     */
+    private boolean coalesce(WorkerTask task)
+    {
+        String identity = task.getIdentityKey();
+        if (identity == null) return false;
+
+        QueuedTask waiting = this.waitingByIdentity.get(identity);
+        if (waiting == null) return false;
+
+        switch (task.getCoalescePolicy())
+        {
+            case DROP_DUPLICATE:
+                return true;
+
+            case KEEP_LATEST:
+                this.removeQueuedTask(waiting);
+                waiting.task.getCancellationToken().cancel();
+                this.taskJournal.taskFinished(waiting.journalId, true);
+                // the new task is queued in its place, so it is still coalesced
+                this.coalesced++;
+                return false;
+
+            case MERGE:
+                if (!waiting.task.mergeWith(task)) return false;
+
+                Set<String> added = new HashSet<>(waiting.task.getOrderingKeys());
+                added.removeAll(waiting.keys);
+                waiting.keys.addAll(added);
+                this.addOrderingKeys(waiting, added);
+                // record the merged task in place of the original
+                this.taskJournal.taskFinished(waiting.journalId, true);
+                waiting.journalId = this.taskJournal.taskQueued(waiting.task);
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception
     {
@@ -109,6 +337,95 @@ public class Worker implements
         new Thread(this, "ComixEd-Worker").start();
     }
 
+    private ExecutorService createPool()
+    {
+        final AtomicInteger count = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(Math.max(1, this.threads), runnable ->
+        {
+            Thread thread = new Thread(runnable, "ComixEd-Worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void executeTask(QueuedTask entry)
+    {
+        WorkerTask task = entry.task;
+        CancellationToken token = task.getCancellationToken();
+
+        CancellationToken.setCurrent(token);
+        try
+        {
+            if (token.isCancelled())
+            {
+                this.logger.debug("Skipping cancelled task: " + task);
+                return;
+            }
+            this.logger.debug("Starting task: " + task);
+            long start = System.currentTimeMillis();
+            task.startTask();
+            this.logger.debug((token.isCancelled() ? "Cancelled task: " : "Finished task: ") + task + " ["
+                              + (System.currentTimeMillis() - start) + "ms]");
+        }
+        catch (WorkerTaskException error)
+        {
+            this.logger.debug("Failed to complete task", error);
+        }
+        catch (RuntimeException error)
+        {
+            this.logger.error("Task failed unexpectedly: " + task, error);
+        }
+        finally
+        {
+            CancellationToken.setCurrent(null);
+            this.finishTask(entry, token.isCancelled());
+            synchronized (this.semaphore)
+            {
+                this.running.remove(task);
+                this.activeKeys.removeAll(entry.keys);
+                this.semaphore.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Records the task as finished in the journal once any work it handed off
+     * has completed, so that the task is replayed if the application stops
+     * before that work is saved.
+     */
+    private void finishTask(QueuedTask entry, boolean cancelled)
+    {
+        CompletableFuture<?> pending = entry.task.getPendingWork();
+        if (pending == null)
+        {
+            this.taskJournal.taskFinished(entry.journalId, cancelled);
+            return;
+        }
+
+        pending.whenComplete((result, error) ->
+        {
+            if (error != null)
+            {
+                this.logger.error("Task failed to complete: " + entry.task, error);
+            }
+            this.taskJournal.taskFinished(entry.journalId, cancelled);
+        });
+    }
+
+    private QueuedTask findQueuedTask(WorkerTask task)
+    {
+        for (Deque<QueuedTask> lane : this.lanes.values())
+        {
+            for (QueuedTask entry : lane)
+            {
+                if (entry.task == task) return entry;
+            }
+        }
+
+        return null;
+    }
+
     void fireQueueChangedEvent()
     {
         this.logger.debug("Notifying worker listeners");
@@ -126,6 +443,65 @@ public class Worker implements
         }
     }
 
+    /**
+     * Returns how long, in milliseconds, a task must wait before it is
+     * started ahead of tasks one priority above it.
+     *
+     * @return the aging interval
+     */
+    public long getAgingInterval()
+    {
+        return this.agingInterval;
+    }
+
+    /**
+     * Returns how many tasks have been coalesced with waiting tasks rather
+     * than being run on their own.
+     *
+     * @return the count
+     */
+    public int getCoalescedCount()
+    {
+        return this.coalesced;
+    }
+
+    /**
+     * Returns the tasks waiting to be started, by priority and then in the
+     * order they were added.
+     *
+     * @return the tasks
+     */
+    public List<WorkerTask> getQueuedTasks()
+    {
+        List<WorkerTask> result = new ArrayList<>();
+
+        synchronized (this.semaphore)
+        {
+            for (Deque<QueuedTask> lane : this.lanes.values())
+            {
+                for (QueuedTask entry : lane)
+                {
+                    result.add(entry.task);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the tasks currently being run.
+     *
+     * @return the tasks
+     */
+    public List<WorkerTask> getRunningTasks()
+    {
+        synchronized (this.semaphore)
+        {
+            return new ArrayList<>(this.running);
+        }
+    }
+
     /**
      * Returns the current state of the worker.
      *
@@ -136,13 +512,87 @@ public class Worker implements
         return this.state;
     }
 
+    public int getThreads()
+    {
+        return this.threads;
+    }
+
     /**
      * * Returns whether the worker queue is empty or has tasks remaining. *
      * * @return true if the queue is empty
      */
     public boolean isQueueEmpty()
     {
-        return this.queue.isEmpty();
+        return this.queued == 0;
+    }
+
+    private boolean isStartable(QueuedTask entry)
+    {
+        for (String key : entry.keys)
+        {
+            if (this.activeKeys.contains(key) || (this.waitingByKey.get(key).peekFirst() != entry)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes and returns the queued task with the earliest deadline among
+     * those that can be started, skipping any task held back by an earlier
+     * task sharing one of its ordering keys. Must be called while holding the
+     * semaphore.
+     *
+     * @return the task, or null if no task can be started
+     */
+    private QueuedTask nextTask()
+    {
+        QueuedTask result = null;
+        long deadline = Long.MAX_VALUE;
+
+        for (Priority priority : Priority.values())
+        {
+            for (QueuedTask entry : this.lanes.get(priority))
+            {
+                if (this.isStartable(entry))
+                {
+                    long due = entry.queued + (priority.ordinal() * this.agingInterval);
+                    if ((result == null) || (due < deadline)
+                        || ((due == deadline) && (entry.sequence < result.sequence)))
+                    {
+                        result = entry;
+                        deadline = due;
+                    }
+                    // the rest of this lane was queued later
+                    break;
+                }
+            }
+        }
+
+        if (result != null)
+        {
+            this.removeQueuedTask(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Queues the tasks left unfinished by the last run once every bean they
+     * need is available.
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event)
+    {
+        synchronized (this.semaphore)
+        {
+            if (this.replayed) return;
+            this.replayed = true;
+        }
+
+        for (WorkerTask task : this.taskJournal.replay())
+        {
+            this.addTasksToQueue(task);
+        }
     }
 
     /**
@@ -151,58 +601,103 @@ public class Worker implements
      */
     public int queueSize()
     {
-        return this.queue.size();
+        return this.queued;
+    }
+
+    private void removeQueuedTask(QueuedTask entry)
+    {
+        this.lanes.get(entry.priority).remove(entry);
+        String identity = entry.task.getIdentityKey();
+        if ((identity != null) && (this.waitingByIdentity.get(identity) == entry))
+        {
+            this.waitingByIdentity.remove(identity);
+        }
+        for (String key : entry.keys)
+        {
+            Deque<QueuedTask> waiting = this.waitingByKey.get(key);
+            waiting.remove(entry);
+            if (waiting.isEmpty())
+            {
+                this.waitingByKey.remove(key);
+            }
+        }
+        this.queued--;
     }
 
     @Override
     public void run()
     {
         this.logger.debug("Starting worker queue");
+        ExecutorService pool = this.createPool();
         this.state = State.RUNNING;
         this.fireWorkerStateChangedEvent();
         while (this.state != State.STOP)
         {
             synchronized (this.semaphore)
             {
-                if (this.queue.isEmpty())
+                QueuedTask entry = (this.running.size() < Math.max(1, this.threads)) ? this.nextTask() : null;
+
+                if (entry == null)
                 {
-                    this.logger.debug("Waiting for task or notification");
-                    this.statusAdaptor.updateStatusText("");
                     try
                     {
-                        this.state = State.IDLE;
-                        this.fireWorkerStateChangedEvent();
+                        if ((this.queued == 0) && this.running.isEmpty())
+                        {
+                            this.logger.debug("Waiting for task or notification");
+                            this.statusAdaptor.updateStatusText("");
+                            this.state = State.IDLE;
+                            this.fireWorkerStateChangedEvent();
+                        }
                         this.semaphore.wait();
-                        this.state = State.RUNNING;
+                        if (this.state == State.IDLE)
+                        {
+                            this.state = State.RUNNING;
+                        }
                     }
                     catch (InterruptedException cause)
                     {
                         this.logger.error("Worker interrupted", cause);
                     }
                 }
-                if (!this.queue.isEmpty() && (this.state == State.RUNNING))
+                else
                 {
-                    WorkerTask task = this.queue.poll();
+                    this.running.add(entry.task);
+                    this.activeKeys.addAll(entry.keys);
                     this.fireQueueChangedEvent();
-                    try
-                    {
-                        this.logger.debug("Starting task: " + task);
-                        long start = System.currentTimeMillis();
-                        task.startTask();
-                        this.logger.debug("Finished task: " + task + " [" + (System.currentTimeMillis() - start)
-                                          + "ms]");
-                    }
-                    catch (WorkerTaskException error)
-                    {
-                        this.logger.debug("Failed to complete task", error);
-                    }
+                    pool.execute(() -> this.executeTask(entry));
                 }
             }
         }
         this.logger.debug("Stop processing the work queue");
+        pool.shutdown();
+        try
+        {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException cause)
+        {
+            this.logger.error("Interrupted waiting for running tasks", cause);
+        }
         this.fireWorkerStateChangedEvent();
     }
 
+    /**
+     * Sets how long, in milliseconds, a task waits before it is scheduled as
+     * though it had the next higher priority.
+     *
+     * @param agingInterval
+     *            the interval
+     */
+    public void setAgingInterval(long agingInterval)
+    {
+        this.agingInterval = agingInterval;
+    }
+
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
     /**
      * * Signals the worker to stop processing the task queue. * * If a task is
      * current being processed, the worker will wait until that * task
@@ -217,13 +712,10 @@ public class Worker implements
 
     private void wakeUpWorker()
     {
-        if (this.state == State.IDLE)
+        synchronized (this.semaphore)
         {
-            synchronized (this.semaphore)
-            {
-                this.logger.debug("Waking up worker thread");
-                this.semaphore.notifyAll();
-            }
+            this.logger.debug("Waking up worker thread");
+            this.semaphore.notifyAll();
         }
     }
 }
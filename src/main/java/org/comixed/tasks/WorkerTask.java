@@ -19,6 +19,12 @@
 
 package org.comixed.tasks;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.comixed.utils.CancellationToken;
+
 /**
  * <code>WorkerTask</code> defines a type that is executed by the
  * {@link Worker] class.
@@ -29,6 +35,126 @@ package org.comixed.tasks;
 
 public interface WorkerTask
 {
+    /**
+     * <code>Priority</code> identifies how urgently a task should be run.
+     * Tasks the user is waiting on are <code>INTERACTIVE</code>, while large
+     * background jobs such as imports are <code>BULK</code>.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    enum Priority
+    {
+     INTERACTIVE,
+     NORMAL,
+     BULK,
+    }
+
+    /**
+     * <code>CoalescePolicy</code> decides what happens when a task is queued
+     * while a task with the same identity key is still waiting to be run.
+     *
+     * @author Darryl L. Pierce
+     *
+     */
+    enum CoalescePolicy
+    {
+     /** both tasks are run */
+     NONE,
+     /** the new task is dropped */
+     DROP_DUPLICATE,
+     /** the waiting task is dropped and the new task queued */
+     KEEP_LATEST,
+     /** the new task is merged into the waiting task */
+     MERGE,
+    }
+
+    /**
+     * Returns the token used to cancel the task, whether it is still queued or
+     * already running. A running task is expected to check the token between
+     * units of work and return early once it is cancelled.
+     *
+     * @return the token
+     */
+    CancellationToken getCancellationToken();
+
+    /**
+     * Returns how the task is combined with a waiting task that has the same
+     * identity key.
+     *
+     * @return the policy
+     */
+    default CoalescePolicy getCoalescePolicy()
+    {
+        return CoalescePolicy.NONE;
+    }
+
+    /**
+     * Returns the key identifying what the task does, such that two tasks
+     * with the same key do the same work.
+     *
+     * @return the key, or null if the task is never coalesced
+     */
+    default String getIdentityKey()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the work the task handed off to finish after it returned, such
+     * as a comic waiting to be saved in the next batch. The task is only
+     * recorded as finished once this completes.
+     *
+     * @return the pending work, or null if the task finished when it returned
+     */
+    default CompletableFuture<?> getPendingWork()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the keys for the comics or files touched by the task.
+     *
+     * Tasks that share a key are run one at a time in the order they were
+     * queued, while tasks with no keys in common can run in parallel.
+     *
+     * @return the keys, or an empty set if the task touches nothing shared
+     */
+    default Set<String> getOrderingKeys()
+    {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Returns the priority with which the task is scheduled.
+     *
+     * @return the priority
+     */
+    default Priority getPriority()
+    {
+        return Priority.NORMAL;
+    }
+
+    /**
+     * Returns how much of the task is complete, from 0.0 to 1.0.
+     *
+     * @return the progress
+     */
+    double getProgress();
+
+    /**
+     * Merges the work of a newly queued task into this waiting one. Only used
+     * with {@link CoalescePolicy#MERGE}.
+     *
+     * @param task
+     *            the new task, which has the same identity key
+     * @return true if merged, false if the new task must be queued on its own
+     */
+    default boolean mergeWith(WorkerTask task)
+    {
+        return false;
+    }
+
     /**
      * Invoked when the task can begin processing.
      *
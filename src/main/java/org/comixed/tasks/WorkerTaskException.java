@@ -30,6 +30,11 @@ public class WorkerTaskException extends Exception
 {
     private static final long serialVersionUID = 7919030698664175776L;
 
+    public WorkerTaskException(String message)
+    {
+        super(message);
+    }
+
     public WorkerTaskException(String message, Exception cause)
     {
         super(message, cause);
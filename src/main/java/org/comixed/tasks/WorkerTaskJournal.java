@@ -0,0 +1,322 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.tasks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+import org.comixed.tasks.WorkerTask.Priority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>WorkerTaskJournal</code> keeps an append-only record of the
+ * {@link JournaledWorkerTask}s given to the {@link Worker}, so that work which
+ * was still queued or running when the application stopped can be replayed
+ * when it starts again.
+ *
+ * The journal holds one JSON object per line. A <code>queued</code> record
+ * holds the task's type, priority and parameters, and a <code>completed</code>
+ * or <code>cancelled</code> record marks it as finished. Once every recorded
+ * task has finished, the journal is emptied so that it does not grow without
+ * bound.
+ *
+ * The journal is disabled unless <code>comic.task-journal.filename</code> is
+ * set.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+@Component
+public class WorkerTaskJournal
+{
+    private static final String EVENT = "event";
+    private static final String ID = "id";
+    private static final String TYPE = "type";
+    private static final String PRIORITY = "priority";
+    private static final String PARAMETERS = "parameters";
+
+    private static final String QUEUED = "queued";
+    private static final String COMPLETED = "completed";
+    private static final String CANCELLED = "cancelled";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Value("${comic.task-journal.filename:}")
+    private String filename;
+
+    private Writer writer;
+    private int outstanding = 0;
+
+    private void append(JsonObject record)
+    {
+        try
+        {
+            if (this.writer == null)
+            {
+                this.writer = new BufferedWriter(new FileWriter(this.filename, true));
+            }
+            this.writer.write(record.toString());
+            this.writer.write('\n');
+            // each record is flushed so that it survives the application exiting
+            this.writer.flush();
+        }
+        catch (IOException error)
+        {
+            this.logger.error("Unable to write task journal: " + this.filename, error);
+        }
+    }
+
+    private void close()
+    {
+        if (this.writer != null)
+        {
+            try
+            {
+                this.writer.close();
+            }
+            catch (IOException error)
+            {
+                this.logger.error("Unable to close task journal: " + this.filename, error);
+            }
+            this.writer = null;
+        }
+    }
+
+    private WorkerTask createTask(JsonObject record)
+    {
+        String type = record.getString(TYPE, null);
+
+        try
+        {
+            Object bean = this.context.getBean(Class.forName(type));
+            if (!(bean instanceof JournaledWorkerTask))
+            {
+                this.logger.warn("Journaled task type cannot be replayed: " + type);
+                return null;
+            }
+
+            JournaledWorkerTask result = (JournaledWorkerTask )bean;
+            Map<String,
+                String> parameters = new HashMap<>();
+            JsonObject values = record.getJsonObject(PARAMETERS);
+            if (values != null)
+            {
+                for (Map.Entry<String,
+                               JsonValue> entry : values.entrySet())
+                {
+                    parameters.put(entry.getKey(), ((JsonString )entry.getValue()).getString());
+                }
+            }
+            result.setParameters(parameters);
+            if (result instanceof AbstractWorkerTask)
+            {
+                ((AbstractWorkerTask )result).setPriority(Priority.valueOf(record.getString(PRIORITY,
+                                                                                           Priority.NORMAL.name())));
+            }
+
+            return result;
+        }
+        catch (ClassNotFoundException
+               | BeansException
+               | ClassCastException
+               | IllegalArgumentException error)
+        {
+            this.logger.warn("Unable to recreate journaled task: " + type, error);
+        }
+        catch (WorkerTaskException error)
+        {
+            this.logger.warn("Journaled task no longer applies: " + type, error);
+        }
+
+        return null;
+    }
+
+    public String getFilename()
+    {
+        return this.filename;
+    }
+
+    public boolean isEnabled()
+    {
+        return (this.filename != null) && !this.filename.isEmpty();
+    }
+
+    /**
+     * Loads the tasks which were recorded as queued but never finished, then
+     * empties the journal. The worker records each of them again as it queues
+     * them.
+     *
+     * @return the unfinished tasks, in the order they were queued
+     */
+    public synchronized List<WorkerTask> replay()
+    {
+        List<WorkerTask> result = new ArrayList<>();
+        if (!this.isEnabled()) return result;
+
+        File file = new File(this.filename);
+        if (!file.exists()) return result;
+
+        this.logger.debug("Replaying task journal: " + this.filename);
+        Map<String,
+            JsonObject> unfinished = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.trim().isEmpty()) continue;
+                try (JsonReader json = Json.createReader(new StringReader(line)))
+                {
+                    JsonObject record = json.readObject();
+                    String id = record.getString(ID, null);
+                    if (QUEUED.equals(record.getString(EVENT, null)))
+                    {
+                        unfinished.put(id, record);
+                    }
+                    else
+                    {
+                        unfinished.remove(id);
+                    }
+                }
+                catch (JsonException
+                       | ClassCastException error)
+                {
+                    // most likely the last record, cut short when the application exited
+                    this.logger.warn("Skipping unreadable task journal record: " + line);
+                }
+            }
+        }
+        catch (IOException error)
+        {
+            this.logger.error("Unable to read task journal: " + this.filename, error);
+            return result;
+        }
+
+        for (JsonObject record : unfinished.values())
+        {
+            WorkerTask task = this.createTask(record);
+            if (task != null)
+            {
+                result.add(task);
+            }
+        }
+        this.logger.debug("Replaying " + result.size() + " unfinished task(s)");
+
+        this.truncate();
+
+        return result;
+    }
+
+    public synchronized void setFilename(String filename)
+    {
+        this.close();
+        this.filename = filename;
+    }
+
+    /**
+     * Records that a task has finished, whether it completed, failed or was
+     * cancelled.
+     *
+     * @param id
+     *            the id returned when the task was queued, which may be null
+     * @param cancelled
+     *            true if the task was cancelled
+     */
+    public synchronized void taskFinished(String id, boolean cancelled)
+    {
+        if (id == null) return;
+
+        this.append(Json.createObjectBuilder().add(EVENT, cancelled ? CANCELLED : COMPLETED).add(ID, id).build());
+        this.outstanding--;
+        if (this.outstanding <= 0)
+        {
+            this.truncate();
+        }
+    }
+
+    /**
+     * Records that a task has been queued.
+     *
+     * @param task
+     *            the task
+     * @return the id for the record, or null if the task is not journaled
+     */
+    public synchronized String taskQueued(WorkerTask task)
+    {
+        if (!this.isEnabled() || !(task instanceof JournaledWorkerTask)) return null;
+
+        String result = UUID.randomUUID().toString();
+        JsonObjectBuilder parameters = Json.createObjectBuilder();
+        for (Map.Entry<String,
+                       String> entry : ((JournaledWorkerTask )task).getParameters().entrySet())
+        {
+            parameters.add(entry.getKey(), entry.getValue());
+        }
+        this.append(Json.createObjectBuilder().add(EVENT, QUEUED).add(ID, result)
+                        .add(TYPE, task.getClass().getName()).add(PRIORITY, task.getPriority().name())
+                        .add(PARAMETERS, parameters).build());
+        this.outstanding++;
+
+        return result;
+    }
+
+    private void truncate()
+    {
+        this.close();
+        this.outstanding = 0;
+        try
+        {
+            new FileWriter(this.filename, false).close();
+        }
+        catch (IOException error)
+        {
+            this.logger.error("Unable to empty task journal: " + this.filename, error);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.comixed.library.model.ComicSelectionModel;
 import org.comixed.repositories.ComicRepository;
 import org.comixed.tasks.MoveComicWorkerTask;
 import org.comixed.tasks.Worker;
+import org.comixed.tasks.WorkerTask.Priority;
 import org.comixed.ui.frames.MainFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -123,6 +124,7 @@ public class ConsolidateLibraryAction extends AbstractAction
 
                     task.setComic(comic);
                     task.setDestination(dir.getAbsolutePath());
+                    task.setPriority(Priority.BULK);
                     worker.addTasksToQueue(task);
                 }
             }
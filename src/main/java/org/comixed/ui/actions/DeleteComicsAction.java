@@ -20,7 +20,6 @@
 package org.comixed.ui.actions;
 
 import java.awt.event.ActionEvent;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -32,7 +31,7 @@ import org.comixed.library.model.ComicSelectionListener;
 import org.comixed.library.model.ComicSelectionModel;
 import org.comixed.tasks.DeleteComicsWorkerTask;
 import org.comixed.tasks.Worker;
-import org.comixed.ui.components.ComicDetailsTable;
+import org.comixed.tasks.WorkerTask.Priority;
 import org.comixed.ui.frames.MainFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,9 +62,6 @@ public class DeleteComicsAction extends AbstractAction implements
     @Autowired
     private MainFrame mainFrame;
 
-    @Autowired
-    private ComicDetailsTable detailsTable;
-
     @Autowired
     private ComicSelectionModel comicSelectionModel;
 
@@ -78,13 +74,7 @@ public class DeleteComicsAction extends AbstractAction implements
     @Override
     public void actionPerformed(ActionEvent e)
     {
-        int[] rows = this.detailsTable.getSelectedRows();
-        List<Comic> comics = new ArrayList<>();
-
-        for (int row : rows)
-        {
-            comics.add(this.comicSelectionModel.getComic(row));
-        }
+        List<Comic> comics = this.comicSelectionModel.getSelectedComics();
 
         this.logger.debug("Prompting the user to delete " + comics.size() + " comics");
 
@@ -110,6 +100,7 @@ public class DeleteComicsAction extends AbstractAction implements
 
                 task.setComics(comics);
                 task.setDeleteFiles(deleteFileAsWell);
+                task.setPriority(Priority.INTERACTIVE);
                 this.worker.addTasksToQueue(task);
             }
         }
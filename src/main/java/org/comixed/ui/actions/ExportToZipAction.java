@@ -25,10 +25,11 @@ import javax.swing.AbstractAction;
 
 import org.comixed.library.adaptors.ZipArchiveAdaptor;
 import org.comixed.library.model.ComicSelectionListener;
+import org.comixed.library.model.Comic;
 import org.comixed.library.model.ComicSelectionModel;
 import org.comixed.tasks.ExportComicWorkerTask;
 import org.comixed.tasks.Worker;
-import org.comixed.ui.components.ComicDetailsTable;
+import org.comixed.tasks.WorkerTask.Priority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -47,9 +48,6 @@ public class ExportToZipAction extends AbstractAction implements
     @Autowired
     private ZipArchiveAdaptor archiveAdaptor;
 
-    @Autowired
-    private ComicDetailsTable detailsTable;
-
     @Autowired
     private ComicSelectionModel selectionModel;
 
@@ -64,14 +62,13 @@ public class ExportToZipAction extends AbstractAction implements
     {
         this.logger.debug("Preparing to export comic to zip format");
 
-        int[] selections = this.detailsTable.getSelectedRows();
-
-        for (int selection : selections)
+        for (Comic comic : this.selectionModel.getSelectedComics())
         {
             ExportComicWorkerTask task = taskFactory.getObject();
 
-            task.setComics(this.selectionModel.getComic(selection));
+            task.setComics(comic);
             task.setArchiveAdaptor(this.archiveAdaptor);
+            task.setPriority(Priority.INTERACTIVE);
 
             this.worker.addTasksToQueue(task);
         }
@@ -21,16 +21,14 @@ package org.comixed.ui.actions;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
-import java.io.FileFilter;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 
 import javax.swing.AbstractAction;
 
 import org.comixed.AppConfiguration;
-import org.comixed.tasks.AddComicWorkerTask;
+import org.comixed.tasks.ImportComicsWorkerTask;
 import org.comixed.tasks.Worker;
+import org.comixed.tasks.WorkerTask.Priority;
 import org.comixed.ui.adaptors.FileChooserAdaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,7 +61,7 @@ public class ImportComicsAction extends AbstractAction
     private Worker worker;
 
     @Autowired
-    private ObjectFactory<AddComicWorkerTask> taskFactory;
+    private ObjectFactory<ImportComicsWorkerTask> taskFactory;
 
     @Autowired
     private AppConfiguration configuration;
@@ -78,51 +76,14 @@ public class ImportComicsAction extends AbstractAction
                                                                  this.configuration.getOption(LAST_IMPORT_DIRECTORY));
         if (directory != null && directory.exists())
         {
-            // build the list of files to be imported
-            List<File> filenames = this.getFileList(directory);
-            for (File filename : filenames)
-            {
-                AddComicWorkerTask task = this.taskFactory.getObject();
+            ImportComicsWorkerTask task = this.taskFactory.getObject();
 
-                task.setFile(filename);
-                this.worker.addTasksToQueue(task);
-            }
+            task.setDirectory(directory);
+            task.setPriority(Priority.BULK);
+            this.worker.addTasksToQueue(task);
 
             this.configuration.setOption(LAST_IMPORT_DIRECTORY, directory.getAbsolutePath());
             this.configuration.save();
         }
     }
-
-    private List<File> getFileList(File root)
-    {
-        this.logger.debug("Getting all comic files under " + root.getAbsolutePath());
-        List<File> result = new ArrayList<>();
-        this.searchDirectory(root, result);
-        return result;
-    }
-
-    private void searchDirectory(File root, List<File> result)
-    {
-        this.logger.debug("Descending into " + root);
-        File[] files = root.listFiles((FileFilter )pathname ->
-        {
-            String name = pathname.getName().toLowerCase();
-            // TODO need a better way to evaluate file extensions than this
-            if (pathname.isFile()
-                && !(name.endsWith(".cbz") || name.endsWith(".cbr") || name.endsWith(".cb7"))) return false;
-            return true;
-        });
-
-        for (File file : files)
-        {
-            if (file.isDirectory())
-            {
-                this.searchDirectory(file, result);
-            }
-            else
-            {
-                result.add(file);
-            }
-        }
-    }
 }
@@ -26,6 +26,9 @@ import java.awt.Image;
 import javax.swing.JPanel;
 
 import org.comixed.library.model.Comic;
+import org.comixed.library.model.ComicSummary;
+import org.comixed.library.model.Page;
+import org.comixed.repositories.PageRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +41,9 @@ import org.springframework.stereotype.Component;
  * <code>ComicCoverDetails</code> shows a single comic's cover and the details
  * for the comic.
  *
+ * Only the comic's summary is kept. The cover is found by filename and read
+ * straight from the comic's archive, without loading the comic.
+ *
  * @author Darryl L. Pierce
  *
  */
@@ -53,17 +59,20 @@ public class ComicCoverDetails extends JPanel
     @Autowired
     private MessageSource messageSource;
 
-    private Comic comic;
+    @Autowired
+    private PageRepository pageRepository;
+
+    private ComicSummary comic;
     private Image image = null;
     private Dimension dimensions;
     private int parentHeight;
 
     /**
-     * Returns the comic.
+     * Returns the summary of the comic.
      *
-     * @return the comic
+     * @return the summary
      */
-    public Comic getComic()
+    public ComicSummary getComic()
     {
         return this.comic;
     }
@@ -81,11 +90,30 @@ public class ComicCoverDetails extends JPanel
     private void loadImage()
     {
         this.image = null;
-        this.image = this.comic.getCover().getImage(0, this.parentHeight - (2 * IMAGE_BORDER_WIDTH));
+        Page cover = this.loadCover();
+        this.image = cover.getImage(0, this.parentHeight - (2 * IMAGE_BORDER_WIDTH));
         this.dimensions = new Dimension(this.image.getWidth(null) + (2 * IMAGE_BORDER_WIDTH),
                                         this.image.getHeight(null) + (2 * IMAGE_BORDER_WIDTH));
     }
 
+    private Page loadCover()
+    {
+        String filename = this.pageRepository.findCoverFilename(this.comic.getId());
+        if (filename == null) return Page.MISSING_PAGE;
+
+        // just enough of the comic for the page to be read from its archive
+        Comic comic = new Comic();
+        comic.setFilename(this.comic.getFilename());
+        comic.setArchiveType(this.comic.getArchiveType());
+        if (comic.isMissing()) return Page.MISSING_PAGE;
+
+        Page result = new Page();
+        result.setFilename(filename);
+        comic.addPage(0, result);
+
+        return result;
+    }
+
     @Override
     public void paint(Graphics g)
     {
@@ -100,9 +128,9 @@ public class ComicCoverDetails extends JPanel
      * Sets the comic displayed by this panel.
      *
      * @param comic
-     *            the comic
+     *            the summary of the comic
      */
-    public void setComic(Comic comic)
+    public void setComic(ComicSummary comic)
     {
         this.logger.debug("Setting the comic: filename=" + comic.getFilename());
         this.comic = comic;
@@ -19,15 +19,20 @@
 
 package org.comixed.ui.components;
 
+import java.awt.Rectangle;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
-import org.comixed.library.model.Comic;
 import org.comixed.library.model.ComicSelectionListener;
 import org.comixed.library.model.ComicSelectionModel;
+import org.comixed.library.model.ComicSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -40,6 +45,9 @@ import org.springframework.stereotype.Component;
  * of
  * comics.
  *
+ * Without a selection it shows the whole library, adding the covers a page of
+ * comics at a time as the view is scrolled towards the last one shown.
+ *
  * @author Darryl L. Pierce
  *
  */
@@ -55,7 +63,38 @@ public class ComicCoverFlowPanel extends JPanel implements
     private ComicSelectionModel comicSelectionModel;
     @Autowired
     private ObjectFactory<ComicCoverDetails> comicCoverDetailsFactory;
-    private int lastHash = -1;
+    private List<ComicSummary> covers = new ArrayList<>();
+    private boolean showingLibrary = false;
+    private JViewport viewport;
+    private ChangeListener scrollListener = new ChangeListener()
+    {
+        @Override
+        public void stateChanged(ChangeEvent e)
+        {
+            ComicCoverFlowPanel.this.showMoreCovers();
+        }
+    };
+
+    private void addCover(ComicSummary comic)
+    {
+        this.logger.debug("Adding cover for " + comic.getFilename());
+        ComicCoverDetails cover = this.comicCoverDetailsFactory.getObject();
+        cover.setComic(comic);
+        cover.setParentHeight((int )this.getVisibleRect().getHeight());
+        this.add(cover);
+        this.covers.add(comic);
+    }
+
+    @Override
+    public void addNotify()
+    {
+        super.addNotify();
+        if (this.getParent() instanceof JViewport)
+        {
+            this.viewport = (JViewport )this.getParent();
+            this.viewport.addChangeListener(this.scrollListener);
+        }
+    }
 
     @Override
     public void afterPropertiesSet() throws Exception
@@ -94,24 +133,32 @@ public class ComicCoverFlowPanel extends JPanel implements
     private void redisplayCovers(boolean refresh)
     {
         this.logger.debug("Refreshing comic covers view");
-        List<Comic> allComics = this.comicSelectionModel.getSelectedComics()
-                                                        .isEmpty() ? this.comicSelectionModel.getAllComics()
-                                                                   : this.comicSelectionModel.getSelectedComics();
+        List<ComicSummary> allComics = new ArrayList<>();
+        if (this.comicSelectionModel.hasSelections() == false)
+        {
+            // keep as many of the library's covers as were already paged in
+            int count = this.showingLibrary ? this.covers.size() : 0;
+            allComics.addAll(this.comicSelectionModel.getComicSummaries(0,
+                                                                        Math.max(count,
+                                                                                 this.comicSelectionModel.getPageSize())));
+            this.showingLibrary = true;
+        }
+        else
+        {
+            allComics.addAll(this.comicSelectionModel.getSelectedComicSummaries());
+            this.showingLibrary = false;
+        }
 
-        if (!refresh && (this.lastHash == allComics.hashCode())) return;
+        if (!refresh && this.covers.equals(allComics)) return;
 
-        if ((this.lastHash == -1) || (this.lastHash != allComics.hashCode()))
+        if (!this.covers.equals(allComics))
         {
             this.logger.debug("Reloading comic covers");
             this.removeAll();
-            this.lastHash = allComics.hashCode();
-            for (Comic comic : allComics)
+            this.covers.clear();
+            for (ComicSummary comic : allComics)
             {
-                this.logger.debug("Adding cover for " + comic.getFilename());
-                ComicCoverDetails cover = this.comicCoverDetailsFactory.getObject();
-                cover.setComic(comic);
-                cover.setParentHeight((int )this.getVisibleRect().getHeight());
-                this.add(cover);
+                this.addCover(comic);
             }
         }
 
@@ -119,9 +166,41 @@ public class ComicCoverFlowPanel extends JPanel implements
         ComicCoverFlowPanel.this.revalidate();
     }
 
+    @Override
+    public void removeNotify()
+    {
+        if (this.viewport != null)
+        {
+            this.viewport.removeChangeListener(this.scrollListener);
+            this.viewport = null;
+        }
+        super.removeNotify();
+    }
+
     @Override
     public void selectionChanged()
     {
         this.redisplayCovers(true);
     }
+
+    private void showMoreCovers()
+    {
+        if (!this.showingLibrary
+            || (this.covers.size() >= this.comicSelectionModel.getComicCount())) return;
+
+        // wait until the view is within its own width of the last cover
+        Rectangle visible = this.getVisibleRect();
+        if ((visible.getMaxX() + visible.getWidth()) < this.getWidth()) return;
+
+        List<ComicSummary> comics = this.comicSelectionModel.getComicSummaries(this.covers.size(),
+                                                                               this.comicSelectionModel.getPageSize());
+        this.logger.debug("Paging in covers: first=" + this.covers.size() + " count=" + comics.size());
+        for (ComicSummary comic : comics)
+        {
+            this.addCover(comic);
+        }
+
+        this.repaint();
+        this.revalidate();
+    }
 }
@@ -24,13 +24,17 @@ import java.awt.event.ActionEvent;
 import java.io.File;
 
 import javax.swing.AbstractAction;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 
 import org.comixed.AppConfiguration;
+import org.comixed.library.adaptors.CompressionProfile;
 import org.comixed.ui.adaptors.FileChooserAdaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +68,7 @@ public class LibraryConfiguration extends JPanel implements
 
     private JTextField libraryRootDirectory = new JTextField();
     private JCheckBox renamePagesOnExport = new JCheckBox();
+    private JComboBox<CompressionProfile> compressionProfile = new JComboBox<>(CompressionProfile.values());
 
     @Override
     public void afterPropertiesSet() throws Exception
@@ -97,6 +102,28 @@ public class LibraryConfiguration extends JPanel implements
         this.add(new JLabel(this.messageSource.getMessage("dialog.config.tab.library.rename-pages.text", null,
                                                           this.getLocale())));
         this.add(this.renamePagesOnExport);
+        this.add(new JLabel()); // padding out the row
+        this.add(new JLabel(this.messageSource.getMessage("dialog.config.tab.library.compression-profile.text", null,
+                                                          this.getLocale())));
+        this.compressionProfile.setRenderer(new DefaultListCellRenderer()
+        {
+            private static final long serialVersionUID = -2795224853373349727L;
+
+            @Override
+            public java.awt.Component getListCellRendererComponent(JList<?> list,
+                                                                   Object value,
+                                                                   int index,
+                                                                   boolean isSelected,
+                                                                   boolean cellHasFocus)
+            {
+                String key = "dialog.config.tab.library.compression-profile."
+                             + ((CompressionProfile )value).name().toLowerCase();
+                String label = LibraryConfiguration.this.messageSource.getMessage(key, null,
+                                                                                  LibraryConfiguration.this.getLocale());
+                return super.getListCellRendererComponent(list, label, index, isSelected, cellHasFocus);
+            }
+        });
+        this.add(this.compressionProfile);
         this.loadConfiguration();
     }
 
@@ -110,6 +137,7 @@ public class LibraryConfiguration extends JPanel implements
         {
             this.renamePagesOnExport.setSelected(Boolean.valueOf(this.configuration.getOption(AppConfiguration.RENAME_COMIC_PAGES_ON_EXPORT)));
         }
+        this.compressionProfile.setSelectedItem(CompressionProfile.forName(this.configuration.getOption(AppConfiguration.EXPORT_COMPRESSION_PROFILE)));
     }
 
     public void saveConfiguration()
@@ -117,6 +145,8 @@ public class LibraryConfiguration extends JPanel implements
         this.configuration.setOption(AppConfiguration.LIBRARY_ROOT, this.libraryRootDirectory.getText());
         this.configuration.setOption(AppConfiguration.RENAME_COMIC_PAGES_ON_EXPORT,
                                      String.valueOf(this.renamePagesOnExport.isSelected()));
+        this.configuration.setOption(AppConfiguration.EXPORT_COMPRESSION_PROFILE,
+                                     ((CompressionProfile )this.compressionProfile.getSelectedItem()).name());
         this.configuration.save();
     }
 }
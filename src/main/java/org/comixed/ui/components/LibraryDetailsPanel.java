@@ -85,7 +85,7 @@ public class LibraryDetailsPanel extends DetailsPanel implements
     {
         this.detailsLabel.setText(this.messageSource.getMessage("view.details.library.text", new Object[]
         {this.comicSelectionModel.getTotalComics(),
-         this.comicSelectionModel.getSelectedComics().size(),
+         this.comicSelectionModel.getSelectedComicSummaries().size(),
          this.comicSelectionModel.getDuplicatePageCount()}, this.getLocale()));
     }
 }
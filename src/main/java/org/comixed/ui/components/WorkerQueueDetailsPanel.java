@@ -19,12 +19,25 @@
 
 package org.comixed.ui.components;
 
+import java.awt.event.ActionEvent;
+
+import javax.swing.AbstractAction;
 import javax.swing.BoxLayout;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
 import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import org.comixed.tasks.Worker;
 import org.comixed.tasks.Worker.State;
 import org.comixed.tasks.WorkerListener;
+import org.comixed.tasks.WorkerTask;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
@@ -32,7 +45,8 @@ import org.springframework.stereotype.Component;
 
 /**
  * <code>WorkerQueueDetails</code> shows the status of the {@link Worker} as it
- * processes tasks.
+ * processes tasks, lists the running and queued tasks with their progress, and
+ * lets the user cancel either the selected task or all of them.
  *
  * @author Darryl L. Pierce
  *
@@ -44,6 +58,11 @@ public class WorkerQueueDetailsPanel extends DetailsPanel implements
 {
     private static final long serialVersionUID = -6309623580223095684L;
 
+    // how often the queue details are refreshed while the worker is running
+    private static final int REFRESH_INTERVAL = 1000;
+    // only the head of a large queue is listed
+    private static final int MAXIMUM_QUEUED_TASKS_SHOWN = 100;
+
     @Autowired
     private MessageSource messageSource;
 
@@ -51,6 +70,9 @@ public class WorkerQueueDetailsPanel extends DetailsPanel implements
     private Worker worker;
 
     private JLabel queueState = new JLabel();
+    private DefaultListModel<WorkerTask> tasks = new DefaultListModel<>();
+    private JList<WorkerTask> taskList = new JList<>(this.tasks);
+    private Timer refreshTimer = new Timer(REFRESH_INTERVAL, e -> this.updateQueueState());
 
     @Override
     public void afterPropertiesSet() throws Exception
@@ -66,6 +88,58 @@ public class WorkerQueueDetailsPanel extends DetailsPanel implements
         this.logger.debug("Laying out UI components");
         this.setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
         this.add(this.queueState);
+
+        this.taskList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        this.taskList.setCellRenderer(new DefaultListCellRenderer()
+        {
+            private static final long serialVersionUID = 4628364618290843530L;
+
+            @Override
+            public java.awt.Component getListCellRendererComponent(JList<?> list,
+                                                                   Object value,
+                                                                   int index,
+                                                                   boolean isSelected,
+                                                                   boolean cellHasFocus)
+            {
+                WorkerTask task = (WorkerTask )value;
+                String label = WorkerQueueDetailsPanel.this.messageSource.getMessage("view.details.queue.task.label",
+                                                                                     new Object[]
+                                                                                     {task.toString(),
+                                                                                      task.getProgress()},
+                                                                                     WorkerQueueDetailsPanel.this.getLocale());
+                return super.getListCellRendererComponent(list, label, index, isSelected, cellHasFocus);
+            }
+        });
+        this.add(new JScrollPane(this.taskList));
+
+        JPanel buttons = new JPanel();
+        buttons.add(new JButton(new AbstractAction(this.messageSource.getMessage("view.details.queue.cancel.label",
+                                                                                 null, this.getLocale()))
+        {
+            private static final long serialVersionUID = -1954771183016342371L;
+
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                WorkerTask task = WorkerQueueDetailsPanel.this.taskList.getSelectedValue();
+                if (task != null)
+                {
+                    WorkerQueueDetailsPanel.this.worker.cancelTask(task);
+                }
+            }
+        }));
+        buttons.add(new JButton(new AbstractAction(this.messageSource.getMessage("view.details.queue.cancel-all.label",
+                                                                                 null, this.getLocale()))
+        {
+            private static final long serialVersionUID = 2377318446920154877L;
+
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                WorkerQueueDetailsPanel.this.worker.cancelAllTasks();
+            }
+        }));
+        this.add(buttons);
     }
 
     @Override
@@ -87,7 +161,38 @@ public class WorkerQueueDetailsPanel extends DetailsPanel implements
                                                                                                                                getLocale());
         this.queueState.setText(messageSource.getMessage("view.details.queue.size.label", new Object[]
         {stateText,
-         worker.queueSize()}, getLocale()));
+         worker.queueSize(),
+         worker.getCoalescedCount()}, getLocale()));
+        SwingUtilities.invokeLater(this::updateTaskList);
+    }
+
+    private void updateTaskList()
+    {
+        WorkerTask selected = this.taskList.getSelectedValue();
+
+        this.tasks.clear();
+        for (WorkerTask task : this.worker.getRunningTasks())
+        {
+            this.tasks.addElement(task);
+        }
+        for (WorkerTask task : this.worker.getQueuedTasks())
+        {
+            if (this.tasks.size() >= MAXIMUM_QUEUED_TASKS_SHOWN) break;
+            this.tasks.addElement(task);
+        }
+        if (selected != null)
+        {
+            this.taskList.setSelectedValue(selected, false);
+        }
+
+        if (this.worker.getState() == State.RUNNING)
+        {
+            this.refreshTimer.start();
+        }
+        else
+        {
+            this.refreshTimer.stop();
+        }
     }
 
     @Override
@@ -0,0 +1,92 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.utils;
+
+/**
+ * <code>CancellationToken</code> lets a long-running operation be cancelled
+ * from another thread. The operation checks the token at points where it can
+ * safely stop, such as between the entries of an archive.
+ *
+ * A token can be bound to the current thread so that code far below the
+ * operation, which has no reference to it, can still check for cancellation.
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class CancellationToken
+{
+    private static final ThreadLocal<CancellationToken> current = new ThreadLocal<>();
+
+    /**
+     * Returns the token bound to the current thread.
+     *
+     * @return the token, or null if none is bound
+     */
+    public static CancellationToken getCurrent()
+    {
+        return current.get();
+    }
+
+    /**
+     * Returns if a token is bound to the current thread and it has been
+     * cancelled.
+     *
+     * @return true if cancelled
+     */
+    public static boolean isCurrentCancelled()
+    {
+        CancellationToken token = current.get();
+
+        return (token != null) && token.isCancelled();
+    }
+
+    /**
+     * Binds a token to the current thread, or unbinds it if the token is null.
+     *
+     * @param token
+     *            the token
+     */
+    public static void setCurrent(CancellationToken token)
+    {
+        if (token != null)
+        {
+            current.set(token);
+        }
+        else
+        {
+            current.remove();
+        }
+    }
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Requests that the operation stop at its next opportunity.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return this.cancelled;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ArchiveHandlePoolTest
+{
+    private static class TestArchive implements
+                                     Closeable
+    {
+        boolean closed = false;
+
+        @Override
+        public void close()
+        {
+            this.closed = true;
+        }
+    }
+
+    private ArchiveHandlePool pool;
+    private File file1;
+    private File file2;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        pool = new ArchiveHandlePool();
+        pool.setMaxOpen(1);
+        file1 = File.createTempFile("pool-test", ".cbz");
+        file2 = File.createTempFile("pool-test", ".cbz");
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.clear();
+        file1.delete();
+        file2.delete();
+    }
+
+    private ArchiveHandlePool.Handle<TestArchive> borrow(File file) throws IOException
+    {
+        return pool.borrow(file, TestArchive.class, source -> new TestArchive());
+    }
+
+    @Test
+    public void testBorrowReusesReturnedArchive() throws IOException
+    {
+        ArchiveHandlePool.Handle<TestArchive> first = borrow(file1);
+        TestArchive archive = first.get();
+        first.close();
+
+        ArchiveHandlePool.Handle<TestArchive> second = borrow(file1);
+
+        assertSame(archive, second.get());
+        assertFalse(archive.closed);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        second.close();
+    }
+
+    @Test
+    public void testBorrowWhileInUseOpensAnotherArchive() throws IOException
+    {
+        ArchiveHandlePool.Handle<TestArchive> first = borrow(file1);
+        ArchiveHandlePool.Handle<TestArchive> second = borrow(file1);
+
+        assertNotSame(first.get(), second.get());
+        assertEquals(2, pool.getMissCount());
+
+        first.close();
+        second.close();
+
+        assertEquals(1, pool.getIdleCount());
+        assertTrue(first.get().closed);
+    }
+
+    @Test
+    public void testModifiedFileIsReopened() throws IOException
+    {
+        ArchiveHandlePool.Handle<TestArchive> first = borrow(file1);
+        first.close();
+
+        FileUtils.writeStringToFile(file1, "changed", "UTF-8");
+
+        ArchiveHandlePool.Handle<TestArchive> second = borrow(file1);
+
+        assertNotSame(first.get(), second.get());
+        assertTrue(first.get().closed);
+        assertEquals(0, pool.getHitCount());
+        second.close();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedArchiveIsClosed() throws IOException
+    {
+        ArchiveHandlePool.Handle<TestArchive> first = borrow(file1);
+        first.close();
+        ArchiveHandlePool.Handle<TestArchive> second = borrow(file2);
+        second.close();
+
+        assertEquals(1, pool.getIdleCount());
+        assertTrue(first.get().closed);
+        assertFalse(second.get().closed);
+    }
+
+    @Test
+    public void testInvalidatedArchiveIsNotPooled() throws IOException
+    {
+        ArchiveHandlePool.Handle<TestArchive> handle = borrow(file1);
+        handle.invalidate();
+        handle.close();
+
+        assertEquals(0, pool.getIdleCount());
+        assertTrue(handle.get().closed);
+    }
+
+    @Test
+    public void testEvict() throws IOException
+    {
+        ArchiveHandlePool.Handle<TestArchive> handle = borrow(file1);
+        handle.close();
+
+        pool.evict(file1);
+
+        assertEquals(0, pool.getIdleCount());
+        assertTrue(handle.get().closed);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZMethod;
+import org.junit.Test;
+
+public class CompressionProfileTest
+{
+    @Test
+    public void testForName()
+    {
+        assertEquals(CompressionProfile.SMALLEST, CompressionProfile.forName("smallest"));
+    }
+
+    @Test
+    public void testForNameUnknown()
+    {
+        assertEquals(CompressionProfile.BALANCED, CompressionProfile.forName(null));
+        assertEquals(CompressionProfile.BALANCED, CompressionProfile.forName("farfegnugen"));
+    }
+
+    @Test
+    public void testFastestStoresImages()
+    {
+        assertEquals(ZipEntry.STORED, CompressionProfile.FASTEST.getZipMethod("page-001.JPG"));
+        assertEquals(SevenZMethod.COPY,
+                     CompressionProfile.FASTEST.getSevenZipMethods("page-001.png").iterator().next().getMethod());
+    }
+
+    @Test
+    public void testFastestCompressesOtherContent()
+    {
+        assertEquals(ZipEntry.DEFLATED, CompressionProfile.FASTEST.getZipMethod("ComicInfo.xml"));
+        assertEquals(Deflater.BEST_SPEED, CompressionProfile.FASTEST.getZipLevel("ComicInfo.xml"));
+    }
+
+    @Test
+    public void testSmallestUsesLzma2()
+    {
+        assertEquals(SevenZMethod.LZMA2,
+                     CompressionProfile.SMALLEST.getSevenZipMethods("page-001.jpg").iterator().next().getMethod());
+        assertEquals(Deflater.BEST_COMPRESSION, CompressionProfile.SMALLEST.getZipLevel("page-001.jpg"));
+    }
+
+    @Test
+    public void testCopiesEntriesWithTheSameMethod()
+    {
+        assertTrue(CompressionProfile.FASTEST.canCopyZipEntry("page-001.jpg", ZipEntry.STORED));
+        assertTrue(CompressionProfile.FASTEST.canCopyZipEntry("ComicInfo.xml", ZipEntry.DEFLATED));
+        assertTrue(CompressionProfile.BALANCED.canCopyZipEntry("page-001.jpg", ZipEntry.DEFLATED));
+        assertFalse(CompressionProfile.FASTEST.canCopyZipEntry("page-001.jpg", ZipEntry.DEFLATED));
+        assertFalse(CompressionProfile.BALANCED.canCopyZipEntry("page-001.jpg", ZipEntry.STORED));
+    }
+
+    @Test
+    public void testSmallestCompressesDeflatedEntriesAgain()
+    {
+        assertFalse(CompressionProfile.SMALLEST.canCopyZipEntry("page-001.jpg", ZipEntry.DEFLATED));
+        assertFalse(CompressionProfile.SMALLEST.canCopyZipEntry("ComicInfo.xml", ZipEntry.DEFLATED));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.adaptors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
+import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.comixed.library.model.Comic;
+import org.comixed.library.model.Page;
+
+/**
+ * <code>SevenZipArchiveAdaptorBenchmark</code> compares writing a 300 page
+ * comic as a CB7 using {@link SevenZipArchiveAdaptor} against the previous
+ * approach of staging each page in a temporary file.
+ *
+ * It is not run as part of the test suite. Run it with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.comixed.library.adaptors.SevenZipArchiveAdaptorBenchmark
+ * </pre>
+ *
+ * @author Darryl L. Pierce
+ *
+ */
+public class SevenZipArchiveAdaptorBenchmark
+{
+    private static final String TEST_PAGE_FILE = "src/test/resources/example.jpg";
+    private static final int PAGE_COUNT = 300;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int TIMED_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception
+    {
+        byte[] content = Files.readAllBytes(Paths.get(TEST_PAGE_FILE));
+        Comic comic = new Comic();
+        for (int index = 0;
+             index < PAGE_COUNT;
+             index++)
+        {
+            comic.addPage(index, new Page(String.format("page-%03d.jpg", index), content));
+        }
+
+        SevenZipArchiveAdaptor adaptor = new SevenZipArchiveAdaptor();
+        adaptor.comicInfoEntryAdaptor = new ComicInfoEntryAdaptor();
+
+        File target = File.createTempFile("comixed-benchmark", ".cb7");
+        target.deleteOnExit();
+
+        for (int round = 0;
+             round < WARMUP_ROUNDS;
+             round++)
+        {
+            saveWithTemporaryFiles(comic, target, adaptor.comicInfoEntryAdaptor);
+            adaptor.saveComicInternal(comic, target.getAbsolutePath(), false, CompressionProfile.BALANCED);
+        }
+
+        long temporaryFiles = 0L;
+        long direct = 0L;
+        for (int round = 0;
+             round < TIMED_ROUNDS;
+             round++)
+        {
+            long started = System.nanoTime();
+            saveWithTemporaryFiles(comic, target, adaptor.comicInfoEntryAdaptor);
+            temporaryFiles += System.nanoTime() - started;
+
+            started = System.nanoTime();
+            adaptor.saveComicInternal(comic, target.getAbsolutePath(), false, CompressionProfile.BALANCED);
+            direct += System.nanoTime() - started;
+        }
+
+        System.out.println(String.format("pages=%d rounds=%d", PAGE_COUNT, TIMED_ROUNDS));
+        System.out.println(String.format("temporary files: %8.1f ms/comic", temporaryFiles / 1e6 / TIMED_ROUNDS));
+        System.out.println(String.format("direct entries:  %8.1f ms/comic", direct / 1e6 / TIMED_ROUNDS));
+    }
+
+    /**
+     * The save path as it was before entries were created directly from their
+     * content.
+     */
+    private static void saveWithTemporaryFiles(Comic comic,
+                                               File target,
+                                               ComicInfoEntryAdaptor comicInfoEntryAdaptor) throws IOException
+    {
+        SevenZOutputFile archive = new SevenZOutputFile(target);
+        addFileToArchive(archive, "ComicInfo.xml", comicInfoEntryAdaptor.saveContent(comic));
+        for (int index = 0;
+             index < comic.getPageCount();
+             index++)
+        {
+            Page page = comic.getPage(index);
+            addFileToArchive(archive, page.getFilename(), page.getContent());
+        }
+        archive.finish();
+        archive.close();
+    }
+
+    private static void addFileToArchive(SevenZOutputFile archive, String filename, byte[] content) throws IOException
+    {
+        File tempFile = File.createTempFile("comixed", "tmp");
+        FileOutputStream output = new FileOutputStream(tempFile);
+        output.write(content, 0, content.length);
+        output.close();
+
+        SevenZArchiveEntry entry = archive.createArchiveEntry(tempFile, filename);
+        entry.setContentMethods(CompressionProfile.BALANCED.getSevenZipMethods(filename));
+        archive.putArchiveEntry(entry);
+        archive.write(content);
+        archive.closeArchiveEntry();
+
+        tempFile.delete();
+    }
+}
@@ -22,6 +22,10 @@ package org.comixed.library.adaptors;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
 
 import org.comixed.ComixEdTestContext;
 import org.comixed.library.model.Comic;
@@ -103,6 +107,27 @@ public class SevenZipArchiveAdaptorTest
         assertEquals(7443280, result.length);
     }
 
+    @Test
+    public void testLoadEntries() throws ArchiveAdaptorException
+    {
+        Map<String,
+            byte[]> result = archiveAdaptor.loadEntries(comic, Arrays.asList(TEST_FILE_ENTRY_1, TEST_FILE_ENTRY_3));
+
+        assertEquals(2, result.size());
+        assertEquals(7443280, result.get(TEST_FILE_ENTRY_1).length);
+        assertTrue(result.containsKey(TEST_FILE_ENTRY_3));
+    }
+
+    @Test
+    public void testLoadEntriesSkipsMissingEntries() throws ArchiveAdaptorException
+    {
+        Map<String,
+            byte[]> result = archiveAdaptor.loadEntries(comic, Arrays.asList(TEST_FILE_ENTRY_1, TEST_FILE_ENTRY_1.substring(1)));
+
+        assertEquals(1, result.size());
+        assertTrue(result.containsKey(TEST_FILE_ENTRY_1));
+    }
+
     @Test
     public void testGetSingleFileNotFound() throws ArchiveAdaptorException
     {
@@ -19,14 +19,25 @@
 
 package org.comixed.library.adaptors;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.comixed.ComixEdTestContext;
 import org.comixed.library.adaptors.ArchiveAdaptorException;
 import org.comixed.library.adaptors.ZipArchiveAdaptor;
+import org.comixed.library.model.ArchiveEntryIndex;
+import org.comixed.library.model.ArchiveType;
 import org.comixed.library.model.Comic;
+import org.comixed.utils.CancellationToken;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -96,6 +107,22 @@ public class ZipArchiveAdaptorTest
         assertEquals(TEST_FILE_ENTRY_3, comic.getPage(3).getFilename());
     }
 
+    @Test(expected = ArchiveAdaptorException.class)
+    public void testLoadComicStopsWhenCancelled() throws ArchiveAdaptorException
+    {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        CancellationToken.setCurrent(token);
+        try
+        {
+            archiveAdaptor.loadComic(comic);
+        }
+        finally
+        {
+            CancellationToken.setCurrent(null);
+        }
+    }
+
     @Test
     public void testGetSingleFile() throws ArchiveAdaptorException
     {
@@ -105,6 +132,65 @@ public class ZipArchiveAdaptorTest
         assertEquals(7443280, result.length);
     }
 
+    @Test
+    public void testGetSingleFileBufferMemoryMapped() throws ArchiveAdaptorException
+    {
+        byte[] expected = archiveAdaptor.loadSingleFile(comic, TEST_FILE_ENTRY_1);
+
+        archiveAdaptor.setMemoryMapped(true);
+        try
+        {
+            ByteBuffer result = archiveAdaptor.loadSingleFileBuffer(comic, TEST_FILE_ENTRY_1);
+
+            assertNotNull(result);
+            assertTrue(result.isReadOnly());
+            byte[] content = new byte[result.remaining()];
+            result.get(content);
+            assertArrayEquals(expected, content);
+        }
+        finally
+        {
+            archiveAdaptor.setMemoryMapped(false);
+        }
+    }
+
+    @Test
+    public void testLoadComicBuildsEntryIndex() throws ArchiveAdaptorException
+    {
+        archiveAdaptor.loadComic(comic);
+
+        for (int index = 0;
+             index < comic.getPageCount();
+             index++)
+        {
+            assertNotNull(comic.getPage(index).getEntryIndex());
+            assertTrue(comic.getPage(index).getEntryIndex().isComplete());
+        }
+    }
+
+    @Test
+    public void testGetSingleFileUsingEntryIndex() throws ArchiveAdaptorException
+    {
+        archiveAdaptor.loadComic(comic);
+
+        byte[] result = archiveAdaptor.loadSingleFile(comic, TEST_FILE_ENTRY_1);
+
+        assertNotNull(result);
+        assertEquals(7443280, result.length);
+    }
+
+    @Test
+    public void testGetSingleFileWithStaleEntryIndex() throws ArchiveAdaptorException
+    {
+        archiveAdaptor.loadComic(comic);
+        comic.getPage(1).setEntryIndex(new ArchiveEntryIndex(0L, 16L, 16L, ZipEntry.STORED, 0L));
+
+        byte[] result = archiveAdaptor.loadSingleFile(comic, TEST_FILE_ENTRY_1);
+
+        assertNotNull(result);
+        assertEquals(7443280, result.length);
+    }
+
     @Test
     public void testGetSingleFileNotFound() throws ArchiveAdaptorException
     {
@@ -129,6 +215,38 @@ public class ZipArchiveAdaptorTest
         assertEquals(TEST_FILE_ENTRY_3, result.getPage(3).getFilename());
     }
 
+    @Test
+    public void testSaveComicBuildsComicWithoutReload() throws ArchiveAdaptorException
+    {
+        archiveAdaptor.loadComic(comic);
+        comic.setSeries("Test Series");
+        File directory = new File(TEST_CBZ_FILE).getAbsoluteFile().getParentFile();
+
+        Comic result = archiveAdaptor.saveComic(comic, false);
+
+        assertEquals(ArchiveType.CBZ, result.getArchiveType());
+        assertEquals("Test Series", result.getSeries());
+        assertEquals(comic.getPage(0).getHash(), result.getPage(0).getHash());
+        assertArrayEquals(comic.getPage(0).getContent(), result.getPage(0).getContent());
+        assertEquals(0, directory.listFiles((dir, name) -> name.endsWith(".tmp")).length);
+    }
+
+    @Test
+    public void testSaveComicIndexesEntries() throws ArchiveAdaptorException
+    {
+        archiveAdaptor.loadComic(comic);
+
+        Comic result = archiveAdaptor.saveComic(comic, true);
+
+        for (int index = 0;
+             index < result.getPageCount();
+             index++)
+        {
+            assertNotNull(result.getPage(index).getEntryIndex());
+            assertTrue(result.getPage(index).getEntryIndex().isComplete());
+        }
+    }
+
     @Test
     public void testSaveComicRenamePages() throws ArchiveAdaptorException
     {
@@ -145,6 +263,87 @@ public class ZipArchiveAdaptorTest
         assertEquals(TEST_FILE_ENTRY_RENAMED_3, result.getPage(3).getFilename());
     }
 
+    @Test
+    public void testSaveComicCopiesRawEntries() throws ArchiveAdaptorException
+    {
+        comic.setArchiveType(ArchiveType.CBZ);
+        archiveAdaptor.loadComic(comic);
+        byte[] expected = archiveAdaptor.loadSingleFile(comic, TEST_FILE_ENTRY_1);
+
+        Comic result = archiveAdaptor.saveComic(comic, true);
+
+        assertEquals(4, result.getPageCount());
+        assertEquals(TEST_FILE_ENTRY_RENAMED_1, result.getPage(1).getFilename());
+        assertArrayEquals(expected, result.getPage(1).getContent());
+        assertEquals(comic.getPage(1).getHash(), result.getPage(1).getHash());
+    }
+
+    @Test
+    public void testSaveComicWithFastestProfileStoresImages() throws ArchiveAdaptorException, IOException
+    {
+        archiveAdaptor.loadComic(comic);
+
+        Comic result = archiveAdaptor.saveComic(comic, false, CompressionProfile.FASTEST);
+
+        assertEquals(4, result.getPageCount());
+        ZipFile zipFile = new ZipFile(result.getFilename());
+        try
+        {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry(TEST_FILE_ENTRY_1).getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("ComicInfo.xml").getMethod());
+        }
+        finally
+        {
+            zipFile.close();
+        }
+    }
+
+    @Test
+    public void testSaveComicCompressesInParallel() throws ArchiveAdaptorException
+    {
+        int threads = archiveAdaptor.getCompressionThreads();
+        archiveAdaptor.loadComic(comic);
+        byte[] expected = comic.getPage(2).getContent();
+
+        archiveAdaptor.setCompressionThreads(4);
+        try
+        {
+            Comic result = archiveAdaptor.saveComic(comic, false, CompressionProfile.SMALLEST);
+
+            assertEquals(4, result.getPageCount());
+            assertEquals(TEST_FILE_ENTRY_0, result.getPage(0).getFilename());
+            assertEquals(TEST_FILE_ENTRY_1, result.getPage(1).getFilename());
+            assertEquals(TEST_FILE_ENTRY_2, result.getPage(2).getFilename());
+            assertEquals(TEST_FILE_ENTRY_3, result.getPage(3).getFilename());
+            assertArrayEquals(expected, result.getPage(2).getContent());
+        }
+        finally
+        {
+            archiveAdaptor.setCompressionThreads(threads);
+        }
+    }
+
+    @Test
+    public void testSaveComicCompressesOnCallingThread() throws ArchiveAdaptorException
+    {
+        int threads = archiveAdaptor.getCompressionThreads();
+        archiveAdaptor.loadComic(comic);
+        byte[] expected = comic.getPage(3).getContent();
+
+        archiveAdaptor.setCompressionThreads(1);
+        try
+        {
+            Comic result = archiveAdaptor.saveComic(comic, false);
+
+            assertEquals(4, result.getPageCount());
+            assertArrayEquals(expected, result.getPage(3).getContent());
+        }
+        finally
+        {
+            archiveAdaptor.setCompressionThreads(threads);
+        }
+    }
+
     @Test
     public void testSaveComicDeletePages() throws ArchiveAdaptorException
     {
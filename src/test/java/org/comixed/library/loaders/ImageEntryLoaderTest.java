@@ -19,12 +19,16 @@
 
 package org.comixed.library.loaders;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 import org.comixed.library.model.Comic;
+import org.comixed.library.model.Page;
+import org.comixed.library.model.PageHashAlgorithm;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -62,4 +66,42 @@ public class ImageEntryLoaderTest extends BaseLoaderTest
         assertNotNull(comic.getPage(0));
         assertEquals(content, comic.getPage(0).getContent());
     }
+
+    @Test
+    public void testLoadImageFromStream() throws IOException, EntryLoaderException
+    {
+        byte[] content = loadFile(TEST_FILENAME);
+
+        loader.loadContent(comic, TEST_FILENAME, -1L, new ByteArrayInputStream(content));
+
+        assertEquals(1, comic.getPageCount());
+        assertArrayEquals(content, comic.getPage(0).getContent());
+        assertEquals(new Page(TEST_FILENAME, content).getHash(), comic.getPage(0).getHash());
+    }
+
+    @Test
+    public void testLoadImageFromStreamSpillsLargeContent() throws IOException, EntryLoaderException
+    {
+        byte[] content = loadFile(TEST_FILENAME);
+        loader.setSpillThreshold(content.length / 2);
+
+        loader.loadContent(comic, TEST_FILENAME, content.length, new ByteArrayInputStream(content));
+
+        assertEquals(1, comic.getPageCount());
+        assertArrayEquals(content, comic.getPage(0).getContent());
+        assertEquals(new Page(TEST_FILENAME, content).getHash(), comic.getPage(0).getHash());
+    }
+
+    @Test
+    public void testLoadImageFromStreamWithXXHash64() throws IOException, EntryLoaderException
+    {
+        byte[] content = loadFile(TEST_FILENAME);
+        loader.setHashAlgorithm(PageHashAlgorithm.XXHASH64);
+
+        loader.loadContent(comic, TEST_FILENAME, -1L, new ByteArrayInputStream(content));
+
+        assertEquals(PageHashAlgorithm.XXHASH64, comic.getPage(0).getHashAlgorithm());
+        assertEquals(PageHashAlgorithm.XXHASH64.hash(content), comic.getPage(0).getHash());
+        assertEquals(16, comic.getPage(0).getHash().length());
+    }
 }
@@ -19,17 +19,16 @@
 
 package org.comixed.library.model;
 
-import java.io.InputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 
 import org.comixed.library.adaptors.ArchiveAdaptor;
 import org.comixed.library.adaptors.ArchiveAdaptorException;
-import org.comixed.library.utils.FileTypeIdentifier;
+import org.comixed.library.utils.ArchiveTypeDetector;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -41,20 +40,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 public class ComicFileHandlerTest
 {
     private static final String TEST_COMIC_FILENAME = "src/test/resources/example.cbz";
+    private static final ArchiveTypeDetector.Format TEST_COMIC_FORMAT = ArchiveTypeDetector.Format.ZIP;
     private static final String TEST_COMIC_FILE_TYPE = "zip";
 
     @InjectMocks
     private ComicFileHandler handler;
 
     @Mock
-    private FileTypeIdentifier identifier;
+    private ArchiveTypeDetector detector;
 
     @Mock
     private Comic comic;
 
-    @Captor
-    private ArgumentCaptor<InputStream> input;
-
     @Mock
     private Map<String,
                 ArchiveAdaptor> archiveAdaptors;
@@ -67,15 +64,15 @@ public class ComicFileHandlerTest
     {}
 
     @Test(expected = ComicFileHandlerException.class)
-    public void testLoadComicUnknownType() throws ComicFileHandlerException
+    public void testLoadComicUnknownType() throws ComicFileHandlerException, IOException
     {
         Mockito.when(comic.getFilename()).thenReturn(TEST_COMIC_FILENAME);
-        Mockito.when(identifier.typeFor(Mockito.any(InputStream.class))).thenReturn(null);
+        Mockito.when(detector.detect(Mockito.any(File.class))).thenReturn(null);
 
         handler.loadComic(comic);
 
         Mockito.verify(comic, Mockito.times(1)).getFilename();
-        Mockito.verify(identifier, Mockito.times(1)).typeFor(input.capture());
+        Mockito.verify(detector, Mockito.times(1)).detect(Mockito.any(File.class));
     }
 
     @Test
@@ -89,10 +86,10 @@ public class ComicFileHandlerTest
     }
 
     @Test(expected = ComicFileHandlerException.class)
-    public void testLoadComicNoDefinedArchiveAdaptor() throws ComicFileHandlerException, ArchiveAdaptorException
+    public void testLoadComicNoDefinedArchiveAdaptor() throws ComicFileHandlerException, ArchiveAdaptorException, IOException
     {
         Mockito.when(comic.getFilename()).thenReturn(TEST_COMIC_FILENAME);
-        Mockito.when(identifier.typeFor(Mockito.any(InputStream.class))).thenReturn(TEST_COMIC_FILE_TYPE);
+        Mockito.when(detector.detect(Mockito.any(File.class))).thenReturn(TEST_COMIC_FORMAT);
         Mockito.when(archiveAdaptors.get(Mockito.anyString())).thenReturn(null);
 
         try
@@ -102,16 +99,16 @@ public class ComicFileHandlerTest
         finally
         {
             Mockito.verify(comic, Mockito.atLeast(1)).getFilename();
-            Mockito.verify(identifier, Mockito.times(1)).typeFor(input.capture());
+            Mockito.verify(detector, Mockito.times(1)).detect(Mockito.any(File.class));
             Mockito.verify(archiveAdaptors, Mockito.times(1)).get(TEST_COMIC_FILE_TYPE);
         }
     }
 
     @Test(expected = ComicFileHandlerException.class)
-    public void testLoadComicArchiveAdaptorException() throws ComicFileHandlerException, ArchiveAdaptorException
+    public void testLoadComicArchiveAdaptorException() throws ComicFileHandlerException, ArchiveAdaptorException, IOException
     {
         Mockito.when(comic.getFilename()).thenReturn(TEST_COMIC_FILENAME);
-        Mockito.when(identifier.typeFor(Mockito.any(InputStream.class))).thenReturn(TEST_COMIC_FILE_TYPE);
+        Mockito.when(detector.detect(Mockito.any(File.class))).thenReturn(TEST_COMIC_FORMAT);
         Mockito.when(archiveAdaptors.get(Mockito.anyString())).thenReturn(archiveAdaptor);
         Mockito.doThrow(ArchiveAdaptorException.class).when(archiveAdaptor).loadComic(Mockito.any(Comic.class));
 
@@ -122,25 +119,42 @@ public class ComicFileHandlerTest
         finally
         {
             Mockito.verify(comic, Mockito.atLeast(1)).getFilename();
-            Mockito.verify(identifier, Mockito.times(1)).typeFor(input.capture());
+            Mockito.verify(detector, Mockito.times(1)).detect(Mockito.any(File.class));
             Mockito.verify(archiveAdaptors, Mockito.times(1)).get(TEST_COMIC_FILE_TYPE);
             Mockito.verify(archiveAdaptor, Mockito.times(1)).loadComic(comic);
         }
     }
 
     @Test
-    public void testLoadComic() throws ComicFileHandlerException, ArchiveAdaptorException
+    public void testLoadComic() throws ComicFileHandlerException, ArchiveAdaptorException, IOException
     {
         Mockito.when(comic.getFilename()).thenReturn(TEST_COMIC_FILENAME);
-        Mockito.when(identifier.typeFor(Mockito.any(InputStream.class))).thenReturn(TEST_COMIC_FILE_TYPE);
+        Mockito.when(detector.detect(Mockito.any(File.class))).thenReturn(TEST_COMIC_FORMAT);
         Mockito.when(archiveAdaptors.get(Mockito.anyString())).thenReturn(archiveAdaptor);
         Mockito.doNothing().when(archiveAdaptor).loadComic(Mockito.any(Comic.class));
 
         handler.loadComic(comic);
 
         Mockito.verify(comic, Mockito.atLeast(1)).getFilename();
-        Mockito.verify(identifier, Mockito.times(1)).typeFor(input.capture());
+        Mockito.verify(detector, Mockito.times(1)).detect(Mockito.any(File.class));
         Mockito.verify(archiveAdaptors, Mockito.times(1)).get(TEST_COMIC_FILE_TYPE);
         Mockito.verify(archiveAdaptor, Mockito.times(1)).loadComic(comic);
     }
+
+    @Test(expected = ComicFileHandlerException.class)
+    public void testLoadComicUnsupportedFormat() throws ComicFileHandlerException, IOException
+    {
+        Mockito.when(comic.getFilename()).thenReturn(TEST_COMIC_FILENAME);
+        Mockito.when(detector.detect(Mockito.any(File.class))).thenReturn(ArchiveTypeDetector.Format.RAR5);
+
+        try
+        {
+            handler.loadComic(comic);
+        }
+        finally
+        {
+            Mockito.verify(detector, Mockito.times(1)).detect(Mockito.any(File.class));
+            Mockito.verify(archiveAdaptors, Mockito.never()).get(Mockito.anyString());
+        }
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ComicReloadSchedulerTest
+{
+    @InjectMocks
+    private ComicReloadScheduler scheduler;
+
+    @Mock
+    private ComicSelectionModel comicSelectionModel;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        scheduler.setQuietPeriod(50L);
+        scheduler.setMaximumLatency(150L);
+        scheduler.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        scheduler.destroy();
+    }
+
+    @Test
+    public void testRequestsAreCoalesced() throws InterruptedException
+    {
+        for (int index = 0;
+             index < 5;
+             index++)
+        {
+            scheduler.requestReload();
+        }
+
+        Mockito.verify(comicSelectionModel, Mockito.timeout(1000L).times(1)).reload();
+        Thread.sleep(200L);
+        Mockito.verify(comicSelectionModel, Mockito.times(1)).reload();
+    }
+
+    @Test
+    public void testReloadHappensWithinMaximumLatency() throws InterruptedException
+    {
+        long stop = System.currentTimeMillis() + 500L;
+
+        while (System.currentTimeMillis() < stop)
+        {
+            scheduler.requestReload();
+            Thread.sleep(10L);
+        }
+
+        Mockito.verify(comicSelectionModel, Mockito.atLeast(2)).reload();
+    }
+
+    @Test
+    public void testBulkOperationSuppressesReloads() throws InterruptedException
+    {
+        try (ComicReloadScheduler.BulkOperation bulkOperation = scheduler.beginBulkOperation())
+        {
+            scheduler.requestReload();
+            Thread.sleep(300L);
+            Mockito.verify(comicSelectionModel, Mockito.never()).reload();
+            scheduler.requestReload();
+        }
+
+        Mockito.verify(comicSelectionModel, Mockito.timeout(1000L).times(1)).reload();
+    }
+
+    @Test
+    public void testNestedBulkOperations() throws InterruptedException
+    {
+        ComicReloadScheduler.BulkOperation outer = scheduler.beginBulkOperation();
+        ComicReloadScheduler.BulkOperation inner = scheduler.beginBulkOperation();
+
+        scheduler.requestReload();
+        inner.close();
+        inner.close();
+        Thread.sleep(200L);
+        Mockito.verify(comicSelectionModel, Mockito.never()).reload();
+
+        outer.close();
+        Mockito.verify(comicSelectionModel, Mockito.timeout(1000L).times(1)).reload();
+    }
+
+    @Test
+    public void testBulkOperationWithoutRequests() throws InterruptedException
+    {
+        scheduler.beginBulkOperation().close();
+
+        Thread.sleep(200L);
+        Mockito.verify(comicSelectionModel, Mockito.never()).reload();
+    }
+
+    @Test
+    public void testChangesAreAppliedTogether()
+    {
+        ArgumentCaptor<ComicChangeEvent> event = ArgumentCaptor.forClass(ComicChangeEvent.class);
+
+        scheduler.comicsAdded(Arrays.asList(1L, 2L));
+        scheduler.comicsUpdated(Arrays.asList(2L, 3L));
+        scheduler.comicsRemoved(Collections.singletonList(1L));
+
+        Mockito.verify(comicSelectionModel, Mockito.timeout(1000L).times(1)).applyChanges(event.capture());
+        Mockito.verify(comicSelectionModel, Mockito.never()).reload();
+        assertEquals(Collections.singleton(2L), event.getValue().getAdded());
+        assertEquals(Collections.singleton(3L), event.getValue().getUpdated());
+        // 1 was added and removed before the table saw it
+        assertTrue(event.getValue().getRemoved().isEmpty());
+    }
+
+    @Test
+    public void testFullReloadReplacesChanges() throws InterruptedException
+    {
+        scheduler.comicsAdded(Arrays.asList(1L, 2L));
+        scheduler.requestReload();
+
+        Mockito.verify(comicSelectionModel, Mockito.timeout(1000L).times(1)).reload();
+        Thread.sleep(200L);
+        Mockito.verify(comicSelectionModel, Mockito.never()).applyChanges(Mockito.any(ComicChangeEvent.class));
+    }
+
+    @Test
+    public void testNoChanges() throws InterruptedException
+    {
+        scheduler.comicsRemoved(Collections.emptyList());
+
+        Thread.sleep(200L);
+        Mockito.verifyZeroInteractions(comicSelectionModel);
+    }
+}
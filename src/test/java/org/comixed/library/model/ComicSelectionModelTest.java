@@ -24,10 +24,17 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.SwingUtilities;
+
 import org.comixed.repositories.ComicRepository;
 import org.comixed.repositories.PageRepository;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -35,6 +42,9 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 @RunWith(MockitoJUnitRunner.class)
 @SpringBootTest
@@ -54,43 +64,49 @@ public class ComicSelectionModelTest
     @Mock
     private PageRepository pageRepository;
 
-    @Mock
-    private List<Comic> comicList;
+    private List<ComicSummary> comicList;
 
     @Mock
     private Comic comic;
 
+    @Mock
+    private ComicSummary comicSummary;
+
     @Mock
     private ComicSelectionListener comicSelectionListener;
 
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp()
+    {
+        // created after injection, so that it isn't injected into the model's
+        // lists
+        comicList = Mockito.mock(List.class);
+    }
+
     @Test
     public void testGetComicCountReload()
     {
         model.reload = true;
 
-        Mockito.when(comicRepository.findAll()).thenReturn(comicList);
-        Mockito.doNothing().when(comicList).clear();
-        Mockito.when(comicList.size()).thenReturn(TEST_COMIC_LIST_SIZE);
+        Mockito.when(comicRepository.count()).thenReturn((long )TEST_COMIC_LIST_SIZE);
 
+        assertEquals(TEST_COMIC_LIST_SIZE, model.getComicCount());
         assertEquals(TEST_COMIC_LIST_SIZE, model.getComicCount());
 
-        Mockito.verify(comicRepository, Mockito.times(1)).findAll();
-        Mockito.verify(comicList, Mockito.times(1)).clear();
-        Mockito.verify(comicList, Mockito.times(1)).size();
+        Mockito.verify(comicRepository, Mockito.times(1)).count();
+        Mockito.verify(comicRepository, Mockito.never()).findAll();
     }
 
     @Test
     public void testGetComicCount()
     {
         model.reload = false;
-
-        Mockito.when(comicList.size()).thenReturn(TEST_COMIC_LIST_SIZE);
+        model.comicCount = TEST_COMIC_LIST_SIZE;
 
         assertEquals(TEST_COMIC_LIST_SIZE, model.getComicCount());
 
-        Mockito.verify(comicRepository, Mockito.never()).findAll();
-        Mockito.verify(comicList, Mockito.never()).clear();
-        Mockito.verify(comicList, Mockito.times(1)).size();
+        Mockito.verify(comicRepository, Mockito.never()).count();
     }
 
     @Test
@@ -98,14 +114,17 @@ public class ComicSelectionModelTest
     {
         model.reload = true;
 
-        Mockito.when(comicRepository.findAll()).thenReturn(comicList);
-        Mockito.doNothing().when(comicList).clear();
-        Mockito.when(comicList.get(Mockito.anyInt())).thenReturn(comic);
+        Mockito.when(comicRepository.count()).thenReturn((long )TEST_COMIC_LIST_SIZE);
+        Page<ComicSummary> page = createPage(comicList);
+        Mockito.when(comicRepository.findSummaries(Mockito.any(Pageable.class))).thenReturn(page);
+        Mockito.when(comicList.size()).thenReturn(model.getPageSize());
+        Mockito.when(comicList.get(Mockito.anyInt())).thenReturn(comicSummary);
 
-        assertSame(comic, model.getComic(TEST_COMIC_INDEX));
+        assertSame(comicSummary, model.getComicSummary(TEST_COMIC_INDEX));
 
-        Mockito.verify(comicRepository, Mockito.times(1)).findAll();
-        Mockito.verify(comicList, Mockito.times(1)).clear();
+        Mockito.verify(comicRepository, Mockito.times(1)).count();
+        Mockito.verify(comicRepository, Mockito.times(1)).findSummaries(new PageRequest(0, model.getPageSize(),
+                                                                                  ComicSelectionModel.ORDER));
         Mockito.verify(comicList, Mockito.times(1)).get(TEST_COMIC_INDEX);
     }
 
@@ -113,16 +132,73 @@ public class ComicSelectionModelTest
     public void testGetComic()
     {
         model.reload = false;
+        model.pages.put(0, comicList);
 
-        Mockito.when(comicList.get(Mockito.anyInt())).thenReturn(comic);
+        Mockito.when(comicList.size()).thenReturn(model.getPageSize());
+        Mockito.when(comicList.get(Mockito.anyInt())).thenReturn(comicSummary);
 
-        assertSame(comic, model.getComic(TEST_COMIC_INDEX));
+        assertSame(comicSummary, model.getComicSummary(TEST_COMIC_INDEX));
 
-        Mockito.verify(comicRepository, Mockito.never()).findAll();
-        Mockito.verify(comicList, Mockito.never()).clear();
+        Mockito.verify(comicRepository, Mockito.never()).findSummaries(Mockito.any(Pageable.class));
         Mockito.verify(comicList, Mockito.times(1)).get(TEST_COMIC_INDEX);
     }
 
+    @Test
+    public void testGetComicLoadsFullComic()
+    {
+        model.reload = false;
+        model.pages.put(0, comicList);
+
+        Mockito.when(comicList.size()).thenReturn(model.getPageSize());
+        Mockito.when(comicList.get(Mockito.anyInt())).thenReturn(comicSummary);
+        Mockito.when(comicSummary.getId()).thenReturn(17L);
+        Mockito.when(comicRepository.findOne(17L)).thenReturn(comic);
+
+        assertSame(comic, model.getComic(TEST_COMIC_INDEX));
+
+        Mockito.verify(comicRepository, Mockito.times(1)).findOne(17L);
+    }
+
+    @Test
+    public void testGetComicFetchesPage()
+    {
+        int index = (2 * model.getPageSize()) + 3;
+
+        model.reload = false;
+        Page<ComicSummary> page = createPage(comicList);
+        Mockito.when(comicRepository.findSummaries(Mockito.any(Pageable.class))).thenReturn(page);
+        Mockito.when(comicList.size()).thenReturn(model.getPageSize());
+        Mockito.when(comicList.get(Mockito.anyInt())).thenReturn(comicSummary);
+
+        assertSame(comicSummary, model.getComicSummary(index));
+        assertSame(comicSummary, model.getComicSummary(index + 1));
+
+        Mockito.verify(comicRepository, Mockito.times(1)).findSummaries(new PageRequest(2, model.getPageSize(),
+                                                                                  ComicSelectionModel.ORDER));
+        Mockito.verify(comicList, Mockito.times(1)).get(3);
+        Mockito.verify(comicList, Mockito.times(1)).get(4);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPagesAreDropped()
+    {
+        model.reload = false;
+        model.setCachedPages(2);
+        Page<ComicSummary> page = createPage(comicList);
+        Mockito.when(comicRepository.findSummaries(Mockito.any(Pageable.class))).thenReturn(page);
+        Mockito.when(comicList.size()).thenReturn(model.getPageSize());
+        Mockito.when(comicList.get(Mockito.anyInt())).thenReturn(comicSummary);
+
+        model.getComicSummary(0);
+        model.getComicSummary(model.getPageSize());
+        model.getComicSummary(0);
+        model.getComicSummary(2 * model.getPageSize());
+
+        assertEquals(2, model.pages.size());
+        assertTrue(model.pages.containsKey(0));
+        assertTrue(model.pages.containsKey(2));
+    }
+
     @Test
     public void testAddComicSelectionListener()
     {
@@ -164,7 +240,7 @@ public class ComicSelectionModelTest
     @Test
     public void testHasSelections()
     {
-        model.selections.add(comic);
+        model.selections.add(comicSummary);
 
         assertTrue(model.hasSelections());
     }
@@ -198,15 +274,132 @@ public class ComicSelectionModelTest
     }
 
     @Test
-    public void testSelectedComics()
+    public void testSelectedComicSummaries()
+    {
+        assertSame(model.selections, model.getSelectedComicSummaries());
+    }
+
+    @Test
+    public void testSelectedComicsAreLoadedTogether()
     {
-        assertSame(model.selections, model.getSelectedComics());
+        Comic first = createComic(1L);
+        Comic second = createComic(2L);
+        model.selections.add(new ComicSummary(second));
+        model.selections.add(new ComicSummary(first));
+        Mockito.when(comicRepository.findAll(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(second, first));
+
+        assertEquals(Arrays.asList(first, second), model.getSelectedComics());
+        Mockito.verify(comicRepository, Mockito.never()).findOne(Mockito.anyLong());
+    }
+
+    @Test
+    public void testSelectingRowsUsesSummaries()
+    {
+        ComicSummary summary = new ComicSummary(createComic(1L));
+        Page<ComicSummary> page = createPage(Collections.singletonList(summary));
+        DefaultListSelectionModel selection = new DefaultListSelectionModel();
+        model.reload = false;
+        model.comicCount = 1;
+        Mockito.when(comicRepository.findSummaries(Mockito.any(Pageable.class))).thenReturn(page);
+        selection.addListSelectionListener(model);
+
+        selection.setSelectionInterval(0, 0);
+
+        assertEquals(Collections.singletonList(summary), model.selections);
+        Mockito.verify(comicRepository, Mockito.never()).findOne(Mockito.anyLong());
     }
 
     @Test
     public void testAllComics()
+    {
+        Mockito.when(comicRepository.findAll(ComicSelectionModel.ORDER)).thenReturn(Arrays.asList(comic));
+
+        assertEquals(Collections.singletonList(comic), model.getAllComics());
+        assertTrue(model.pages.isEmpty());
+    }
+
+    private Page<ComicSummary> createPage(List<ComicSummary> comics)
+    {
+        @SuppressWarnings("unchecked")
+        Page<ComicSummary> result = Mockito.mock(Page.class);
+        Mockito.when(result.getContent()).thenReturn(comics);
+        return result;
+    }
+
+    private void applyChanges(ComicChangeEvent event) throws InvocationTargetException, InterruptedException
+    {
+        model.applyChanges(event);
+        // the changes are applied on the event dispatch thread
+        SwingUtilities.invokeAndWait(() ->
+        {});
+    }
+
+    private Comic createComic(long id)
+    {
+        Comic result = Mockito.mock(Comic.class);
+        Mockito.when(result.getId()).thenReturn(id);
+        return result;
+    }
+
+    @Test
+    public void testApplyChanges() throws InvocationTargetException, InterruptedException
+    {
+        ComicSummary first = new ComicSummary(createComic(1L));
+        ComicSummary second = new ComicSummary(createComic(2L));
+        ComicSummary updated = new ComicSummary(createComic(2L));
+        Page<ComicSummary> page = createPage(Arrays.asList(updated));
+
+        // the library held 1, 2, 3 and 5; 1 was removed, 2 updated and 4 added
+        model.reload = false;
+        model.comicCount = 4;
+        model.pages.put(0, comicList);
+        model.selections.add(first);
+        model.selections.add(second);
+        model.addComicSelectionListener(comicSelectionListener);
+        Mockito.when(comicRepository.countByIdLessThan(1L)).thenReturn(0L);
+        Mockito.when(comicRepository.countByIdLessThan(2L)).thenReturn(0L);
+        Mockito.when(comicRepository.countByIdLessThan(4L)).thenReturn(2L);
+        Mockito.when(comicRepository.findSummaries(Mockito.any(Pageable.class))).thenReturn(page);
+
+        applyChanges(new ComicChangeEvent(Collections.singleton(4L), Collections.singleton(2L),
+                                          Collections.singleton(1L)));
+
+        assertEquals(4, model.comicCount);
+        assertFalse(model.pages.containsValue(comicList));
+        assertEquals(1, model.selections.size());
+        assertSame(updated, model.selections.get(0));
+        Mockito.verify(comicRepository, Mockito.never()).findOne(Mockito.anyLong());
+        Mockito.verify(comicRepository, Mockito.never()).findAll();
+        Mockito.verify(comicSelectionListener, Mockito.times(1)).comicsRemoved(0, 0);
+        Mockito.verify(comicSelectionListener, Mockito.times(1)).comicsUpdated(0, 0);
+        Mockito.verify(comicSelectionListener, Mockito.times(1)).comicsInserted(2, 2);
+        Mockito.verify(comicSelectionListener, Mockito.never()).comicListChanged();
+    }
+
+    @Test
+    public void testApplyChangesAppendsRange() throws InvocationTargetException, InterruptedException
     {
         model.reload = false;
-        assertSame(model.allComics, model.getAllComics());
+        model.comicCount = 10;
+        model.addComicSelectionListener(comicSelectionListener);
+        Mockito.when(comicRepository.countByIdLessThan(11L)).thenReturn(10L);
+        Mockito.when(comicRepository.countByIdLessThan(13L)).thenReturn(12L);
+
+        applyChanges(new ComicChangeEvent(Arrays.asList(11L, 12L, 13L), Collections.emptySet(),
+                                          Collections.emptySet()));
+
+        assertEquals(13, model.comicCount);
+        Mockito.verify(comicSelectionListener, Mockito.times(1)).comicsInserted(10, 12);
+    }
+
+    @Test
+    public void testApplyChangesBeforeLoading() throws InvocationTargetException, InterruptedException
+    {
+        model.reload = true;
+
+        applyChanges(new ComicChangeEvent(Collections.singleton(4L), Collections.emptySet(),
+                                          Collections.emptySet()));
+
+        Mockito.verifyZeroInteractions(comicRepository);
     }
 }
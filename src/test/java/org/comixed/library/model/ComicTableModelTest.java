@@ -22,7 +22,12 @@ package org.comixed.library.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.comixed.ComixEdTestContext;
+import org.comixed.library.model.ComicTableModel.ColumnDefinition;
+import org.comixed.repositories.ComicRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
@@ -40,8 +45,11 @@ import org.springframework.test.context.junit4.SpringRunner;
 public class ComicTableModelTest
 {
     private static final int TEST_COMIC_COUNT = 717;
+    private static final List<String> TEST_LOCATIONS = Arrays.asList("Wakanda", "Genosha");
     @Mock
     private ComicSelectionModel comicSelectionModel;
+    @Mock
+    private ComicRepository comicRepository;
     @InjectMocks
     private ComicTableModel comicTableModel;
     @Mock
@@ -129,4 +137,23 @@ public class ComicTableModelTest
         Mockito.verify(comicSelectionModel, Mockito.times(1)).getComicCount();
         Mockito.verify(comicSelectionModel, Mockito.times(1)).getComic(index.capture());
     }
+
+    @Test
+    public void testGetValueAtLooksUpPropertiesNotInTheSummary()
+    {
+        ColumnDefinition column = new ColumnDefinition();
+        column.setName("locations");
+        column.setProperty("Locations");
+        comicTableModel.columnNames.add(column);
+        ComicSummary summary = new ComicSummary(1000L, "example.cbz", ArchiveType.CBZ, null, null, null, null, null,
+                                                null, null, null, null, 0);
+        Mockito.when(comicSelectionModel.getComicSummary(Mockito.anyInt())).thenReturn(summary);
+        Mockito.when(comicRepository.findLocations(1000L)).thenReturn(TEST_LOCATIONS);
+
+        assertSame(TEST_LOCATIONS, comicTableModel.getValueAt(17, 0));
+        assertSame(TEST_LOCATIONS, comicTableModel.getValueAt(17, 0));
+
+        Mockito.verify(comicRepository, Mockito.times(1)).findLocations(1000L);
+        Mockito.verify(comicSelectionModel, Mockito.never()).getComic(Mockito.anyInt());
+    }
 }
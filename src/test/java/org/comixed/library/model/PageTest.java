@@ -32,6 +32,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -107,6 +108,23 @@ public class PageTest
         assertEquals(EXPECTED_HASH, page.getHash());
     }
 
+    @Test
+    public void testHashAlgorithmDefaultsToMD5()
+    {
+        assertEquals(PageHashAlgorithm.MD5, page.getHashAlgorithm());
+        assertEquals(PageHashAlgorithm.MD5, new Page().getHashAlgorithm());
+    }
+
+    @Test
+    public void testCopyAsKeepsHash()
+    {
+        Page result = page.copyAs("page-000.jpg");
+
+        assertEquals("page-000.jpg", result.getFilename());
+        assertEquals(EXPECTED_HASH, result.getHash());
+        assertFalse(result.hasContent());
+    }
+
     @Test
     public void testHasImage()
     {
@@ -182,4 +200,32 @@ public class PageTest
         page.markDeleted(true);
         assertTrue(page.isMarkedDeleted());
     }
+
+    @Test
+    public void testContentFileIsReadOnce() throws IOException
+    {
+        File file = File.createTempFile("page-test", ".tmp");
+        file.deleteOnExit();
+        Files.write(file.toPath(), CONTENT);
+        Page spilled = new Page(TEST_JPG_FILE, file, PageHashAlgorithm.MD5, EXPECTED_HASH);
+
+        byte[] first = spilled.getContent();
+
+        assertArrayEquals(CONTENT, first);
+        assertSame(first, spilled.getContent());
+        assertNotNull(spilled.getImage());
+    }
+
+    @Test
+    public void testReleaseContentFile() throws IOException
+    {
+        File file = File.createTempFile("page-test", ".tmp");
+        file.deleteOnExit();
+        Page spilled = new Page(TEST_JPG_FILE, file, PageHashAlgorithm.MD5, EXPECTED_HASH);
+
+        spilled.releaseContentFile();
+
+        assertFalse(file.exists());
+        assertFalse(spilled.hasContent());
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveTypeDetectorTest
+{
+    private static final byte[] ZIP_HEADER =
+    {'P', 'K', 0x03, 0x04, 0x14, 0x00};
+    private static final byte[] RAR4_HEADER =
+    {'R', 'a', 'r', '!', 0x1A, 0x07, 0x00, (byte )0xCF};
+    private static final byte[] RAR5_HEADER =
+    {'R', 'a', 'r', '!', 0x1A, 0x07, 0x01, 0x00};
+    private static final byte[] SEVEN_ZIP_HEADER =
+    {'7', 'z', (byte )0xBC, (byte )0xAF, 0x27, 0x1C, 0x00, 0x04};
+    private static final byte[] TEXT_HEADER = "This is not an archive".getBytes();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ArchiveTypeDetector detector = new ArchiveTypeDetector();
+
+    private File createFile(byte[] content) throws IOException
+    {
+        File result = folder.newFile();
+        Files.write(result.toPath(), content);
+        return result;
+    }
+
+    @Test
+    public void testDetectZip() throws IOException
+    {
+        assertEquals(ArchiveTypeDetector.Format.ZIP, detector.detect(createFile(ZIP_HEADER)));
+    }
+
+    @Test
+    public void testDetectRar4() throws IOException
+    {
+        assertEquals(ArchiveTypeDetector.Format.RAR4, detector.detect(createFile(RAR4_HEADER)));
+    }
+
+    @Test
+    public void testDetectRar5() throws IOException
+    {
+        assertEquals(ArchiveTypeDetector.Format.RAR5, detector.detect(createFile(RAR5_HEADER)));
+    }
+
+    @Test
+    public void testDetectSevenZip() throws IOException
+    {
+        assertEquals(ArchiveTypeDetector.Format.SEVEN_ZIP, detector.detect(createFile(SEVEN_ZIP_HEADER)));
+    }
+
+    @Test
+    public void testDetectUnknown() throws IOException
+    {
+        assertNull(detector.detect(createFile(TEXT_HEADER)));
+    }
+
+    @Test
+    public void testDetectEmptyFile() throws IOException
+    {
+        assertNull(detector.detect(createFile(new byte[0])));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDetectMissingFile() throws IOException
+    {
+        detector.detect(new File(folder.getRoot(), "missing.cbz"));
+    }
+
+    @Test
+    public void testDetectRereadsChangedFile() throws IOException
+    {
+        File file = createFile(ZIP_HEADER);
+        detector.detect(file);
+
+        Files.write(file.toPath(), SEVEN_ZIP_HEADER);
+        file.setLastModified(file.lastModified() + 2000L);
+
+        assertEquals(ArchiveTypeDetector.Format.SEVEN_ZIP, detector.detect(file));
+    }
+}
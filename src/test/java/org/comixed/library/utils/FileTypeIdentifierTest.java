@@ -23,8 +23,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -40,6 +42,8 @@ public class FileTypeIdentifierTest
 {
     private static final String TEST_CBZ_FILE = "src/test/resources/example.cbz";
     private static final String TEST_CBR_FILE = "src/test/resources/example.cbr";
+    private static final String TEST_JPG_FILE = "src/test/resources/example.jpg";
+    private static final String TEST_XML_FILE = "src/test/resources/ComicInfo-complete.xml";
 
     @Autowired
     FileTypeIdentifier fileTypeIdentifier;
@@ -61,4 +65,67 @@ public class FileTypeIdentifierTest
         assertNotNull(result);
         assertEquals("x-rar-compressed", result);
     }
+
+    @Test
+    public void testIdentifyJpegFromSignature() throws FileNotFoundException
+    {
+        long hits = fileTypeIdentifier.getHitCount();
+        long fallbacks = fileTypeIdentifier.getFallbackCount();
+
+        String result = fileTypeIdentifier.typeFor(new BufferedInputStream(new FileInputStream(TEST_JPG_FILE)));
+
+        assertEquals("jpeg", result);
+        assertEquals(hits + 1, fileTypeIdentifier.getHitCount());
+        assertEquals(fallbacks, fileTypeIdentifier.getFallbackCount());
+    }
+
+    @Test
+    public void testIdentifyXmlFromSignature() throws FileNotFoundException
+    {
+        String result = fileTypeIdentifier.typeFor(new BufferedInputStream(new FileInputStream(TEST_XML_FILE)));
+
+        assertEquals("xml", result);
+    }
+
+    @Test
+    public void testIdentifyXmlWithoutPrologUsingFilename()
+    {
+        String result = fileTypeIdentifier.typeFor(new ByteArrayInputStream("<ComicInfo></ComicInfo>".getBytes()),
+                                                   "ComicInfo.xml");
+
+        assertEquals("xml", result);
+    }
+
+    @Test
+    public void testIdentifyZipFallsBackToTika() throws FileNotFoundException
+    {
+        long fallbacks = fileTypeIdentifier.getFallbackCount();
+
+        String result = fileTypeIdentifier.typeFor(new BufferedInputStream(new FileInputStream(TEST_CBZ_FILE)));
+
+        assertEquals("zip", result);
+        assertEquals(fallbacks + 1, fileTypeIdentifier.getFallbackCount());
+    }
+
+    @Test
+    public void testStreamIsResetAfterSignature() throws IOException
+    {
+        BufferedInputStream input = new BufferedInputStream(new FileInputStream(TEST_JPG_FILE));
+
+        fileTypeIdentifier.typeFor(input);
+
+        assertEquals(0xFF, input.read());
+        assertEquals(0xD8, input.read());
+    }
+
+    @Test
+    public void testStreamIsResetAfterFallback() throws IOException
+    {
+        BufferedInputStream input = new BufferedInputStream(new FileInputStream(TEST_CBZ_FILE));
+
+        fileTypeIdentifier.typeFor(input);
+
+        assertEquals('P', input.read());
+        assertEquals('K', input.read());
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedSeekableByteChannelTest
+{
+    private static final String TEST_CONTENT = "0123456789";
+
+    private File file;
+    private MappedSeekableByteChannel channel;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("mapped-test", ".bin");
+        FileUtils.writeStringToFile(file, TEST_CONTENT, "UTF-8");
+        channel = new MappedSeekableByteChannel(file);
+    }
+
+    @After
+    public void tearDown()
+    {
+        channel.close();
+        file.delete();
+    }
+
+    @Test
+    public void testRead() throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+
+        channel.position(3);
+
+        assertEquals(4, channel.read(buffer));
+        assertEquals("3456", new String(buffer.array(), "UTF-8"));
+        assertEquals(7, channel.position());
+    }
+
+    @Test
+    public void testReadAtEnd() throws IOException
+    {
+        channel.position(channel.size());
+
+        assertEquals(-1, channel.read(ByteBuffer.allocate(4)));
+    }
+
+    @Test
+    public void testDuplicateHasOwnPosition() throws IOException
+    {
+        MappedSeekableByteChannel duplicate = channel.duplicate();
+
+        duplicate.position(5);
+        duplicate.close();
+
+        assertEquals(0, channel.position());
+        assertTrue(channel.isOpen());
+    }
+
+    @Test
+    public void testSlice() throws IOException
+    {
+        ByteBuffer result = channel.slice(2, 3);
+
+        assertTrue(result.isReadOnly());
+        assertEquals(3, result.remaining());
+        assertEquals('2', result.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void testSliceOutsideOfFile() throws IOException
+    {
+        channel.slice(8, 3);
+    }
+
+    @Test(expected = NonWritableChannelException.class)
+    public void testWrite()
+    {
+        channel.write(ByteBuffer.allocate(1));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.library.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class XXHash64Test
+{
+    private static final byte[] TEST_CONTENT = "abc".getBytes(StandardCharsets.US_ASCII);
+
+    private XXHash64 checksum = new XXHash64();
+
+    private byte[] createLongContent()
+    {
+        byte[] result = new byte[(256 * 5) + 3];
+        for (int index = 0;
+             index < 256 * 5;
+             index++)
+        {
+            result[index] = (byte )index;
+        }
+        result[1280] = 'x';
+        result[1281] = 'y';
+        result[1282] = 'z';
+        return result;
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        assertEquals(0xEF46DB3751D8E999L, checksum.getValue());
+    }
+
+    @Test
+    public void testShortContent()
+    {
+        checksum.update(TEST_CONTENT, 0, TEST_CONTENT.length);
+
+        assertEquals(0x44BC2CF5AD770999L, checksum.getValue());
+    }
+
+    @Test
+    public void testLongContent()
+    {
+        byte[] content = createLongContent();
+
+        checksum.update(content, 0, content.length);
+
+        assertEquals(0xAFD18A3957D3670AL, checksum.getValue());
+    }
+
+    @Test
+    public void testLongContentInPieces()
+    {
+        byte[] content = createLongContent();
+
+        for (int offset = 0;
+             offset < content.length;
+             offset += 7)
+        {
+            checksum.update(content, offset, Math.min(7, content.length - offset));
+        }
+
+        assertEquals(0xAFD18A3957D3670AL, checksum.getValue());
+    }
+
+    @Test
+    public void testReset()
+    {
+        checksum.update(TEST_CONTENT, 0, TEST_CONTENT.length);
+        checksum.reset();
+
+        assertEquals(0xEF46DB3751D8E999L, checksum.getValue());
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.comixed.library.model.Comic;
+import org.comixed.library.model.ComicReloadScheduler;
+import org.comixed.library.model.ComicSelectionModel;
+import org.comixed.library.model.Page;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+
+import com.github.springtestdbunit.DbUnitTestExecutionListener;
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes =
+{RepositoryContext.class,
+ ComicBatchWriter.class,
+ SequenceInitializer.class,
+ ComicSelectionModel.class,
+ ComicReloadScheduler.class})
+@TestPropertySource(locations = "classpath:test-application.properties")
+@DatabaseSetup("classpath:test-comics.xml")
+@TestExecutionListeners(
+{DependencyInjectionTestExecutionListener.class,
+ DirtiesContextTestExecutionListener.class,
+ DbUnitTestExecutionListener.class})
+public class ComicBatchWriterTest
+{
+    private static final String TEST_FILENAME = "src/test/resources/batch-%d.cbz";
+
+    @Autowired
+    private ComicBatchWriter writer;
+
+    @Autowired
+    private ComicRepository repository;
+
+    private Comic createComic(int index)
+    {
+        Comic result = new Comic();
+        result.setFilename(String.format(TEST_FILENAME, index));
+        result.addPage(0, new Page("page-000.jpg", new byte[]
+        {(byte )index}));
+        return result;
+    }
+
+    @Test
+    public void testSave()
+    {
+        List<Comic> comics = new ArrayList<>();
+        for (int index = 0;
+             index < 5;
+             index++)
+        {
+            comics.add(this.createComic(index));
+        }
+
+        writer.save(comics);
+
+        for (int index = 0;
+             index < 5;
+             index++)
+        {
+            Comic result = repository.findByFilename(String.format(TEST_FILENAME, index));
+            assertNotNull(result);
+            assertEquals(1, result.getPageCount());
+        }
+    }
+
+    @Test
+    public void testAddIsPendingUntilFlushed()
+    {
+        Comic comic = this.createComic(10);
+
+        CompletableFuture<Comic> saved = writer.add(comic);
+
+        assertTrue(writer.isPending(comic.getFilename()));
+        assertFalse(saved.isDone());
+        assertNull(repository.findByFilename(comic.getFilename()));
+
+        writer.flush();
+
+        assertFalse(writer.isPending(comic.getFilename()));
+        assertSame(comic, saved.getNow(null));
+        assertNotNull(repository.findByFilename(comic.getFilename()));
+    }
+
+    @Test
+    public void testAddFlushesFullBatch()
+    {
+        int batchSize = writer.getBatchSize();
+        writer.setBatchSize(2);
+        try
+        {
+            writer.add(this.createComic(20));
+            writer.add(this.createComic(21));
+
+            assertNotNull(repository.findByFilename(String.format(TEST_FILENAME, 20)));
+            assertNotNull(repository.findByFilename(String.format(TEST_FILENAME, 21)));
+        }
+        finally
+        {
+            writer.setBatchSize(batchSize);
+        }
+    }
+
+    @Test
+    public void testSaveAssignsIds()
+    {
+        Comic comic = this.createComic(30);
+
+        writer.save(Collections.singletonList(comic));
+
+        assertNotNull(comic.getId());
+        assertTrue(comic.getId() > 0L);
+    }
+}
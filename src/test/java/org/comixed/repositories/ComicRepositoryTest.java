@@ -25,9 +25,12 @@ import static org.junit.Assert.assertNull;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 
 import org.apache.commons.lang.time.DateUtils;
 import org.comixed.library.model.Comic;
+import org.comixed.library.model.ComicSummary;
 import org.comixed.library.model.Page;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +38,8 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.TestExecutionListeners;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -344,4 +349,50 @@ public class ComicRepositoryTest
         assertEquals(count, result.getPageCount());
         assertEquals(page, result.getPage(0));
     }
+
+    @Test
+    public void testCountByIdLessThan()
+    {
+        assertEquals(0L, repository.countByIdLessThan(1000L));
+        assertEquals(2L, repository.countByIdLessThan(1002L));
+        assertEquals(4L, repository.countByIdLessThan(2000L));
+    }
+
+    @Test
+    public void testFindPage()
+    {
+        List<Comic> result = repository.findAll(new PageRequest(1, 3, new Sort("id"))).getContent();
+
+        assertEquals(1, result.size());
+        assertEquals(Long.valueOf(1003L), result.get(0).getId());
+    }
+
+    @Test
+    public void testFindSummaries()
+    {
+        List<ComicSummary> result = repository.findSummaries(new PageRequest(0, 2, new Sort("id"))).getContent();
+
+        assertEquals(2, result.size());
+        assertEquals(comic.getId(), result.get(0).getId());
+        assertEquals(comic.getFilename(), result.get(0).getFilename());
+        assertEquals(comic.getPageCount(), result.get(0).getPageCount());
+    }
+
+    @Test
+    public void testFindLocations()
+    {
+        assertEquals(new HashSet<>(comic.getLocations()), new HashSet<>(repository.findLocations(comic.getId())));
+    }
+
+    @Test
+    public void testFindStoryArcs()
+    {
+        assertEquals(new HashSet<>(comic.getStoryArcs()), new HashSet<>(repository.findStoryArcs(comic.getId())));
+    }
+
+    @Test
+    public void testFindTeams()
+    {
+        assertEquals(new HashSet<>(comic.getTeams()), new HashSet<>(repository.findTeams(comic.getId())));
+    }
 }
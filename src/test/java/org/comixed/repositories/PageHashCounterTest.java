@@ -0,0 +1,102 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.repositories;
+
+import static org.junit.Assert.assertEquals;
+
+import org.comixed.library.model.Comic;
+import org.comixed.library.model.Page;
+import org.comixed.library.model.PageHashAlgorithm;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+
+import com.github.springtestdbunit.DbUnitTestExecutionListener;
+import com.github.springtestdbunit.annotation.DatabaseSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes =
+{RepositoryContext.class,
+ PageHashCounter.class})
+@TestPropertySource(locations = "classpath:test-application.properties")
+@DatabaseSetup("classpath:test-comics.xml")
+@TestExecutionListeners(
+{DependencyInjectionTestExecutionListener.class,
+ DirtiesContextTestExecutionListener.class,
+ DbUnitTestExecutionListener.class})
+public class PageHashCounterTest
+{
+    private static final String TEST_FILENAME = "src/test/resources/hash-count.cbz";
+    private static final String TEST_HASH = "12345";
+
+    @Autowired
+    private ComicRepository comicRepository;
+
+    @Autowired
+    private PageRepository pageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int getCount(String hash)
+    {
+        return this.jdbcTemplate.queryForObject("SELECT COALESCE(SUM(page_count), 0) FROM page_hash_counts WHERE hash = ?",
+                                                Integer.class, hash);
+    }
+
+    @Test
+    public void testSavingPageCountsHash()
+    {
+        Comic comic = new Comic();
+        comic.setFilename(TEST_FILENAME);
+        comic.addPage(0, new Page("page-000.jpg", new byte[1], PageHashAlgorithm.MD5, TEST_HASH));
+
+        comicRepository.save(comic);
+
+        assertEquals(2, this.getCount(TEST_HASH));
+        assertEquals(5, pageRepository.getDuplicatePageCount());
+    }
+
+    @Test
+    public void testDeletingComicUncountsHashes()
+    {
+        comicRepository.delete(1001L);
+
+        assertEquals(2, this.getCount("12346"));
+        assertEquals(2, pageRepository.getDuplicatePageCount());
+    }
+
+    @Test
+    public void testDeletingLastPageRemovesHash()
+    {
+        comicRepository.delete(1000L);
+
+        assertEquals(0, this.getCount(TEST_HASH));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM page_hash_counts WHERE hash = ?",
+                                                    Integer.class, TEST_HASH).intValue());
+    }
+}
@@ -21,6 +21,7 @@ package org.comixed.repositories;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 import java.util.List;
 
@@ -70,4 +71,16 @@ public class PageRepositoryTest
     {
         assertEquals(3, repository.getDuplicatePageCount());
     }
+
+    @Test
+    public void testFindCoverFilename()
+    {
+        assertEquals("front_page.jpg", repository.findCoverFilename(1000L));
+    }
+
+    @Test
+    public void testFindCoverFilenameWithoutCover()
+    {
+        assertNull(repository.findCoverFilename(1001L));
+    }
 }
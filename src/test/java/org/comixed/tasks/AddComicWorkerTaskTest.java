@@ -19,13 +19,16 @@
 
 package org.comixed.tasks;
 
+import static org.junit.Assert.assertSame;
+
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import org.comixed.adaptors.StatusAdaptor;
 import org.comixed.library.model.Comic;
 import org.comixed.library.model.ComicFileHandler;
 import org.comixed.library.model.ComicFileHandlerException;
-import org.comixed.library.model.ComicSelectionModel;
+import org.comixed.repositories.ComicBatchWriter;
 import org.comixed.repositories.ComicRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -63,14 +66,14 @@ public class AddComicWorkerTaskTest
     private ArgumentCaptor<Comic> comic;
 
     @Mock
-    private ComicSelectionModel comicSelectionModel;
+    private ComicBatchWriter comicBatchWriter;
 
     @Test
     public void testAddFile() throws WorkerTaskException, ComicFileHandlerException
     {
         Mockito.doNothing().when(comicFileHandler).loadComic(Mockito.any(Comic.class));
-        Mockito.doNothing().when(comicSelectionModel).reload();
-        Mockito.when(comicRepository.save(Mockito.any(Comic.class))).thenReturn(Mockito.any(Comic.class));
+        CompletableFuture<Comic> saved = new CompletableFuture<>();
+        Mockito.when(comicBatchWriter.add(Mockito.any(Comic.class))).thenReturn(saved);
 
         File file = new File(TEST_CBZ_FILE);
 
@@ -78,8 +81,8 @@ public class AddComicWorkerTaskTest
         task.startTask();
 
         Mockito.verify(comicFileHandler, Mockito.times(1)).loadComic(comic.capture());
-        Mockito.verify(comicRepository, Mockito.times(1)).save(comic.capture());
-        Mockito.verify(comicSelectionModel, Mockito.times(1)).reload();
+        Mockito.verify(comicBatchWriter, Mockito.times(1)).add(comic.capture());
+        assertSame(saved, task.getPendingWork());
     }
 
     @Test(expected = WorkerTaskException.class)
@@ -99,4 +102,17 @@ public class AddComicWorkerTaskTest
             Mockito.verify(comicFileHandler, Mockito.times(1)).loadComic(comic.capture());
         }
     }
+
+    @Test
+    public void testAddFileAlreadyPending() throws WorkerTaskException, ComicFileHandlerException
+    {
+        File file = new File(TEST_CBZ_FILE);
+        Mockito.when(comicBatchWriter.isPending(file.getAbsolutePath())).thenReturn(true);
+
+        task.file = file;
+        task.startTask();
+
+        Mockito.verify(comicFileHandler, Mockito.never()).loadComic(Mockito.any(Comic.class));
+        Mockito.verify(comicBatchWriter, Mockito.never()).add(Mockito.any(Comic.class));
+    }
 }
@@ -0,0 +1,180 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.comixed.adaptors.StatusAdaptor;
+import org.comixed.library.model.Comic;
+import org.comixed.library.model.ComicFileHandler;
+import org.comixed.library.model.ComicFileHandlerException;
+import org.comixed.library.model.ComicReloadScheduler;
+import org.comixed.repositories.ComicBatchWriter;
+import org.comixed.repositories.ComicRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.MessageSource;
+
+@RunWith(MockitoJUnitRunner.class)
+@SpringBootTest
+public class ImportComicsWorkerTaskTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @InjectMocks
+    private ImportComicsWorkerTask task;
+
+    @Mock
+    private MessageSource messageSource;
+
+    @Mock
+    private StatusAdaptor statusAdaptor;
+
+    @Mock
+    private ComicFileHandler comicFileHandler;
+
+    @Mock
+    private ComicRepository comicRepository;
+
+    @Mock
+    private ComicBatchWriter comicBatchWriter;
+
+    @Mock
+    private ComicReloadScheduler comicReloadScheduler;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        folder.newFile("first.cbz");
+        folder.newFile("second.cbr");
+        folder.newFolder("nested");
+        folder.newFile("nested/third.cb7");
+        folder.newFile("notes.txt");
+
+        task.setDirectory(folder.getRoot());
+        task.setLoadThreads(2);
+        task.setQueueCapacity(1);
+        task.setBatchSize(2);
+    }
+
+    @Test
+    public void testImportDirectory() throws WorkerTaskException, ComicFileHandlerException
+    {
+        task.startTask();
+
+        Mockito.verify(comicFileHandler, Mockito.times(3)).loadComic(Mockito.any(Comic.class));
+        Mockito.verify(comicBatchWriter, Mockito.atLeast(2)).save(Mockito.anyListOf(Comic.class));
+        assertEquals(3, task.getStatistics().get(0).getCount());
+        assertEquals(3, task.getStatistics().get(1).getCount());
+        assertEquals(3, task.getStatistics().get(2).getCount());
+    }
+
+    @Test
+    public void testImportSkipsExistingComics() throws WorkerTaskException, ComicFileHandlerException
+    {
+        Mockito.when(comicRepository.findByFilename(new File(folder.getRoot(), "first.cbz").getAbsolutePath()))
+               .thenReturn(new Comic());
+
+        task.startTask();
+
+        Mockito.verify(comicFileHandler, Mockito.times(2)).loadComic(Mockito.any(Comic.class));
+        assertEquals(2, task.getStatistics().get(2).getCount());
+    }
+
+    @Test
+    public void testImportContinuesAfterLoadFailure() throws WorkerTaskException, ComicFileHandlerException
+    {
+        Mockito.doThrow(ComicFileHandlerException.class)
+               .doNothing()
+               .when(comicFileHandler)
+               .loadComic(Mockito.any(Comic.class));
+
+        task.startTask();
+
+        assertEquals(1, task.getStatistics().get(1).getFailures());
+        assertEquals(2, task.getStatistics().get(2).getCount());
+    }
+
+    @Test
+    public void testImportIsABulkOperation() throws WorkerTaskException
+    {
+        task.startTask();
+
+        Mockito.verify(comicReloadScheduler, Mockito.times(1)).beginBulkOperation();
+    }
+
+    @Test
+    public void testImportFailsAfterSaveFailure() throws ComicFileHandlerException
+    {
+        Mockito.doThrow(IllegalStateException.class)
+               .doNothing()
+               .when(comicBatchWriter)
+               .save(Mockito.anyListOf(Comic.class));
+
+        try
+        {
+            task.startTask();
+            fail("Expected the import to fail");
+        }
+        catch (WorkerTaskException error)
+        {
+            // the batches after the failed one are still saved
+            assertTrue(task.getStatistics().get(2).getFailures() > 0);
+            assertEquals(3, task.getStatistics().get(2).getFailures() + task.getStatistics().get(2).getCount());
+        }
+    }
+
+    @Test
+    public void testImportContinuesAfterUnexpectedLoadFailure() throws WorkerTaskException, ComicFileHandlerException
+    {
+        Mockito.doThrow(IllegalStateException.class)
+               .doNothing()
+               .when(comicFileHandler)
+               .loadComic(Mockito.any(Comic.class));
+
+        task.startTask();
+
+        assertEquals(1, task.getStatistics().get(1).getFailures());
+        assertEquals(2, task.getStatistics().get(2).getCount());
+    }
+
+    @Test(timeout = 10000L,
+          expected = WorkerTaskException.class)
+    public void testImportFailsWhenLoadersStop() throws WorkerTaskException, ComicFileHandlerException
+    {
+        Mockito.doThrow(AssertionError.class).when(comicFileHandler).loadComic(Mockito.any(Comic.class));
+
+        task.startTask();
+    }
+}
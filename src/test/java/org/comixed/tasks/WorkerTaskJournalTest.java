@@ -0,0 +1,129 @@
+/*
+ * ComixEd - A digital comic book library management application.
+ * Copyright (C) 2017, Darryl L. Pierce
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.package
+ * org.comixed;
+ */
+
+package org.comixed.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.comixed.tasks.WorkerTask.Priority;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+@RunWith(MockitoJUnitRunner.class)
+@SpringBootTest
+public class WorkerTaskJournalTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @InjectMocks
+    private WorkerTaskJournal journal;
+
+    @Mock
+    private ApplicationContext context;
+
+    private File journalFile;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        journalFile = new File(folder.getRoot(), "tasks.jsonl");
+        journal.setFilename(journalFile.getAbsolutePath());
+    }
+
+    private AddComicWorkerTask createTask(String filename)
+    {
+        AddComicWorkerTask result = new AddComicWorkerTask();
+        result.setFile(new File(folder.getRoot(), filename));
+        return result;
+    }
+
+    @Test
+    public void testDisabledWithoutFilename()
+    {
+        journal.setFilename("");
+
+        assertNull(journal.taskQueued(createTask("example.cbz")));
+        assertTrue(journal.replay().isEmpty());
+    }
+
+    @Test
+    public void testReplaysUnfinishedTasks()
+    {
+        AddComicWorkerTask first = createTask("first.cbz");
+        AddComicWorkerTask second = createTask("second.cbz");
+        second.setPriority(Priority.BULK);
+
+        String id = journal.taskQueued(first);
+        journal.taskQueued(second);
+        journal.taskFinished(id, false);
+
+        AddComicWorkerTask replayed = new AddComicWorkerTask();
+        Mockito.when(context.getBean(AddComicWorkerTask.class)).thenReturn(replayed);
+
+        List<WorkerTask> result = journal.replay();
+
+        assertEquals(1, result.size());
+        assertSame(replayed, result.get(0));
+        assertEquals(new File(folder.getRoot(), "second.cbz").getAbsolutePath(),
+                     replayed.getParameters().get("file"));
+        assertEquals(Priority.BULK, replayed.getPriority());
+        assertEquals(0L, journalFile.length());
+    }
+
+    @Test
+    public void testEmptiedOnceAllTasksFinish()
+    {
+        String id = journal.taskQueued(createTask("example.cbz"));
+
+        assertTrue(journalFile.length() > 0L);
+
+        journal.taskFinished(id, true);
+
+        assertEquals(0L, journalFile.length());
+    }
+
+    @Test
+    public void testSkipsTruncatedRecord() throws IOException
+    {
+        journal.taskQueued(createTask("example.cbz"));
+        FileUtils.writeStringToFile(journalFile, "{\"event\":\"compl", "UTF-8", true);
+
+        Mockito.when(context.getBean(AddComicWorkerTask.class)).thenReturn(new AddComicWorkerTask());
+
+        assertEquals(1, journal.replay().size());
+    }
+}
@@ -24,9 +24,22 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.comixed.adaptors.StatusAdaptor;
+import org.comixed.library.model.Comic;
+import org.comixed.tasks.WorkerTask.CoalescePolicy;
+import org.comixed.tasks.WorkerTask.Priority;
+import org.comixed.utils.CancellationToken;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -53,6 +66,9 @@ public class WorkerTest extends ConcurrentTestCase
     @Mock
     private WorkerListener workerListener;
 
+    @Mock
+    private WorkerTaskJournal taskJournal;
+
     @Test
     public void testStartsAsIdle()
     {
@@ -113,4 +129,366 @@ public class WorkerTest extends ConcurrentTestCase
 
         Mockito.verify(workerListener, Mockito.times(1)).queueChanged();
     }
+
+    private WorkerTask createTask(String key, Runnable work)
+    {
+        return new AbstractWorkerTask()
+        {
+            @Override
+            public Set<String> getOrderingKeys()
+            {
+                return Collections.singleton(key);
+            }
+
+            @Override
+            public void startTask() throws WorkerTaskException
+            {
+                work.run();
+            }
+        };
+    }
+
+    @Test
+    public void testRunsIndependentTasksInParallel() throws InterruptedException
+    {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch finished = new CountDownLatch(2);
+        Runnable work = () ->
+        {
+            started.countDown();
+            try
+            {
+                // only completes if the other task is running at the same time
+                if (started.await(5, TimeUnit.SECONDS)) finished.countDown();
+            }
+            catch (InterruptedException error)
+            {}
+        };
+
+        worker.setThreads(2);
+        worker.addTasksToQueue(createTask("first.cbz", work));
+        worker.addTasksToQueue(createTask("second.cbz", work));
+        new Thread(worker).start();
+
+        try
+        {
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            worker.stop();
+        }
+    }
+
+    @Test
+    public void testTasksWithTheSameKeyRunInOrder() throws InterruptedException
+    {
+        final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch finished = new CountDownLatch(3);
+
+        worker.setThreads(4);
+        worker.addTasksToQueue(createTask("example.cbz", () ->
+        {
+            try
+            {
+                Thread.sleep(100L);
+            }
+            catch (InterruptedException error)
+            {}
+            completed.add("first");
+            finished.countDown();
+        }));
+        worker.addTasksToQueue(createTask("example.cbz", () ->
+        {
+            completed.add("second");
+            finished.countDown();
+        }));
+        worker.addTasksToQueue(createTask("other.cbz", () ->
+        {
+            completed.add("other");
+            finished.countDown();
+        }));
+        new Thread(worker).start();
+
+        try
+        {
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            worker.stop();
+        }
+
+        assertEquals("other", completed.get(0));
+        assertTrue(completed.indexOf("first") < completed.indexOf("second"));
+    }
+
+    private WorkerTask createTask(Priority priority, List<String> completed, String name)
+    {
+        return new AbstractWorkerTask()
+        {
+            @Override
+            public Priority getPriority()
+            {
+                return priority;
+            }
+
+            @Override
+            public void startTask() throws WorkerTaskException
+            {
+                completed.add(name);
+            }
+        };
+    }
+
+    private List<String> runQueuedTasks(long agingInterval, Priority... priorities) throws InterruptedException
+    {
+        final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        worker.setThreads(1);
+        worker.setAgingInterval(agingInterval);
+        for (int index = 0; index < priorities.length; index++)
+        {
+            worker.addTasksToQueue(createTask(priorities[index], completed, String.valueOf(index)));
+        }
+        worker.addWorkerListener(new WorkerListener()
+        {
+            @Override
+            public void queueChanged()
+            {}
+
+            @Override
+            public void workerStateChanged()
+            {
+                if (worker.state == Worker.State.IDLE) finished.countDown();
+            }
+        });
+        new Thread(worker).start();
+
+        try
+        {
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            worker.stop();
+        }
+
+        return completed;
+    }
+
+    @Test
+    public void testInteractiveTasksJumpAheadOfBulkTasks() throws InterruptedException
+    {
+        List<String> completed = runQueuedTasks(60000L, Priority.BULK, Priority.NORMAL, Priority.BULK,
+                                                Priority.INTERACTIVE);
+
+        assertEquals(Arrays.asList("3", "1", "0", "2"), completed);
+    }
+
+    @Test
+    public void testAgedTasksAreNotStarved() throws InterruptedException
+    {
+        List<String> completed = runQueuedTasks(0L, Priority.BULK, Priority.NORMAL, Priority.BULK,
+                                                Priority.INTERACTIVE);
+
+        assertEquals(Arrays.asList("0", "1", "2", "3"), completed);
+    }
+
+    @Test
+    public void testCancelQueuedTask()
+    {
+        WorkerTask first = createTask("first.cbz", () -> {});
+        WorkerTask second = createTask("second.cbz", () -> {});
+
+        worker.addTasksToQueue(first);
+        worker.addTasksToQueue(second);
+
+        assertTrue(worker.cancelTask(first));
+
+        assertTrue(first.getCancellationToken().isCancelled());
+        assertFalse(second.getCancellationToken().isCancelled());
+        assertEquals(1, worker.queueSize());
+        assertSame(second, worker.getQueuedTasks().get(0));
+    }
+
+    @Test
+    public void testCancelAllTasks()
+    {
+        WorkerTask first = createTask("first.cbz", () -> {});
+        WorkerTask second = createTask("second.cbz", () -> {});
+
+        worker.addTasksToQueue(first);
+        worker.addTasksToQueue(second);
+        worker.cancelAllTasks();
+
+        assertTrue(first.getCancellationToken().isCancelled());
+        assertTrue(second.getCancellationToken().isCancelled());
+        assertTrue(worker.isQueueEmpty());
+    }
+
+    @Test
+    public void testCancelRunningTask() throws InterruptedException
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final WorkerTask[] task = new WorkerTask[1];
+
+        task[0] = createTask("example.cbz", () ->
+        {
+            started.countDown();
+            // the token is bound to the thread running the task
+            while (!CancellationToken.isCurrentCancelled())
+            {
+                Thread.yield();
+            }
+            finished.countDown();
+        });
+        worker.addTasksToQueue(task[0]);
+        new Thread(worker).start();
+
+        try
+        {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(task[0], worker.getRunningTasks().get(0));
+            assertTrue(worker.cancelTask(task[0]));
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            worker.stop();
+        }
+    }
+
+    private WorkerTask createTask(String identity, CoalescePolicy policy)
+    {
+        return new AbstractWorkerTask()
+        {
+            @Override
+            public CoalescePolicy getCoalescePolicy()
+            {
+                return policy;
+            }
+
+            @Override
+            public String getIdentityKey()
+            {
+                return identity;
+            }
+
+            @Override
+            public void startTask() throws WorkerTaskException
+            {}
+        };
+    }
+
+    private DeleteComicsWorkerTask createDeleteTask(String... filenames)
+    {
+        List<Comic> comics = new ArrayList<>();
+        for (String filename : filenames)
+        {
+            Comic comic = new Comic();
+            comic.setFilename(filename);
+            comics.add(comic);
+        }
+
+        DeleteComicsWorkerTask result = new DeleteComicsWorkerTask();
+        result.setComics(comics);
+        return result;
+    }
+
+    @Test
+    public void testDropsDuplicateTask()
+    {
+        WorkerTask first = createTask("export:example.cbz", CoalescePolicy.DROP_DUPLICATE);
+        WorkerTask second = createTask("export:example.cbz", CoalescePolicy.DROP_DUPLICATE);
+
+        worker.addTasksToQueue(first);
+        worker.addTasksToQueue(second);
+
+        assertEquals(1, worker.queueSize());
+        assertSame(first, worker.getQueuedTasks().get(0));
+        assertEquals(1, worker.getCoalescedCount());
+    }
+
+    @Test
+    public void testKeepsLatestTask()
+    {
+        WorkerTask first = createTask("move:example.cbz", CoalescePolicy.KEEP_LATEST);
+        WorkerTask second = createTask("move:example.cbz", CoalescePolicy.KEEP_LATEST);
+
+        worker.addTasksToQueue(first);
+        worker.addTasksToQueue(second);
+
+        assertEquals(1, worker.queueSize());
+        assertSame(second, worker.getQueuedTasks().get(0));
+        assertTrue(first.getCancellationToken().isCancelled());
+        assertEquals(1, worker.getCoalescedCount());
+    }
+
+    @Test
+    public void testDoesNotCoalesceDifferentTasks()
+    {
+        worker.addTasksToQueue(createTask("move:first.cbz", CoalescePolicy.KEEP_LATEST));
+        worker.addTasksToQueue(createTask("move:second.cbz", CoalescePolicy.KEEP_LATEST));
+
+        assertEquals(2, worker.queueSize());
+        assertEquals(0, worker.getCoalescedCount());
+    }
+
+    @Test
+    public void testMergesTasks()
+    {
+        DeleteComicsWorkerTask first = createDeleteTask("first.cbz", "second.cbz");
+        DeleteComicsWorkerTask second = createDeleteTask("second.cbz", "third.cbz");
+
+        worker.addTasksToQueue(first);
+        worker.addTasksToQueue(second);
+
+        assertEquals(1, worker.queueSize());
+        assertSame(first, worker.getQueuedTasks().get(0));
+        assertEquals(new HashSet<>(Arrays.asList("first.cbz", "second.cbz", "third.cbz")), first.getOrderingKeys());
+        assertEquals(1, worker.getCoalescedCount());
+    }
+
+    @Test
+    public void testJournalWaitsForPendingWork() throws InterruptedException
+    {
+        final CompletableFuture<Comic> saved = new CompletableFuture<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        WorkerTask task = new AbstractWorkerTask()
+        {
+            @Override
+            public CompletableFuture<?> getPendingWork()
+            {
+                return saved;
+            }
+
+            @Override
+            public void startTask() throws WorkerTaskException
+            {
+                finished.countDown();
+            }
+        };
+        Mockito.when(taskJournal.taskQueued(task)).thenReturn("journal-id");
+
+        worker.addTasksToQueue(task);
+        new Thread(worker).start();
+
+        try
+        {
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100L);
+            Mockito.verify(taskJournal, Mockito.never()).taskFinished(Mockito.anyString(), Mockito.anyBoolean());
+
+            saved.complete(new Comic());
+
+            Mockito.verify(taskJournal, Mockito.timeout(5000).times(1)).taskFinished("journal-id", false);
+        }
+        finally
+        {
+            worker.stop();
+        }
+    }
 }